@@ -47,6 +47,9 @@ import org.site_monitor.activity.fragment.TaskFragment;
 import org.site_monitor.model.adapter.SiteSettingsBusiness;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.bo.Uptime;
+import org.site_monitor.model.db.DBBenchmark;
+import org.site_monitor.model.db.DBCallRollup;
 import org.site_monitor.model.db.DBHelper;
 import org.site_monitor.model.db.DBSiteSettings;
 import org.site_monitor.receiver.BatteryLevelReceiver;
@@ -61,12 +64,16 @@ import org.site_monitor.util.AlarmUtil;
 import org.site_monitor.util.ConnectivityUtil;
 import org.site_monitor.util.NotificationUtil;
 import org.site_monitor.util.TimeUtil;
+import org.site_monitor.util.UptimeUtil;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -81,6 +88,8 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
     private static final String TAG_TASK_FRAGMENT = "main_activity_task_fragment";
     private static final String TAG = MainActivity.class.getSimpleName();
     private static final String PARCEL_SITE_LIST = "SITE_LIST";
+    // one reader for all uptime refreshes, applied in request order
+    private static final ExecutorService UPTIME_READER = Executors.newSingleThreadExecutor();
 
     private final MainActivity context = this;
     private TextView connectivityAlertView;
@@ -142,14 +151,6 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
         unregisterReceiver(networkBroadcastReceiver);
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (dbHelper != null) {
-            dbHelper.release();
-        }
-    }
-
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -168,12 +169,14 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
         LocalBroadcastManager.getInstance(this).registerReceiver(alarmBroadcastReceiver, new IntentFilter(AlarmUtil.ACTION_NEXT_ALARM_SET));
         LocalBroadcastManager.getInstance(this).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_SITE_START_REFRESH));
         LocalBroadcastManager.getInstance(this).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_SITE_END_REFRESH));
+        LocalBroadcastManager.getInstance(this).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_CALLS_WRITTEN));
         LocalBroadcastManager.getInstance(this).registerReceiver(networkBroadcastReceiver, new IntentFilter(FavIconService.ACTION_FAVICON_UPDATED));
         registerReceiver(networkBroadcastReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
     }
 
     private void loadSiteSettingsBusinesses() {
         try {
+            // status of sites is on their rows, list needs no call
             List<SiteSettings> list = dbHelper.getDBSiteSettings().queryForAll();
             siteSettingsList.clear();
             for (SiteSettings siteSettings : list) {
@@ -182,9 +185,9 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
         } catch (SQLException e) {
             Log.e(TAG, "queryForAll", e);
         }
-
         Collections.sort(siteSettingsList, SiteSettingsBusiness.NAME_COMPARATOR);
         siteSettingsAdapter.notifyDataSetChanged();
+        readUptimes();
     }
 
     @Override
@@ -197,6 +200,8 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
             debugItem.setVisible(true);
             MenuItem injectItem = menu.findItem(R.id.action_inject);
             injectItem.setVisible(true);
+            MenuItem benchmarkItem = menu.findItem(R.id.action_benchmark);
+            benchmarkItem.setVisible(true);
         }
         return true;
     }
@@ -233,6 +238,15 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
             }
             return true;
         }
+        if (id == R.id.action_benchmark) {
+            Toast.makeText(this, "benchmark running", Toast.LENGTH_SHORT).show();
+            new Thread(() -> {
+                String report = DBBenchmark.siteDateIndex(getApplicationContext()) + "\n" + DBBenchmark.packedSegments(getApplicationContext())
+                        + "\n" + DBBenchmark.integerColumns(getApplicationContext());
+                runOnUiThread(() -> new AlertDialog.Builder(context).setMessage(report).show());
+            }).start();
+            return true;
+        }
         if (id == R.id.action_debug) {
             StringBuilder sb = new StringBuilder("you're on alpha version").append("\n");
             sb.append("Connectivity: ").append(ConnectivityUtil.isConnected(context)).append("\n");
@@ -282,11 +296,61 @@ public class MainActivity extends AppCompatActivity implements SiteSettingsAdapt
             SiteSettingsBusiness siteSettingsView = siteSettingsAdapter.getItem(position);
             assert siteSettingsView != null;
             siteSettingsView.setIsChecking(false);
-            siteSettingsView.getCalls().add(siteCall);
+            siteSettingsView.onCall(siteCall);
             siteSettingsAdapter.notifyDataSetChanged();
         }
     }
 
+    /**
+     * Uptimes of all sites are read again in background once calls are written, rollups then include them.
+     */
+    @Override
+    public void onCallsWritten(long[] siteIds) {
+        readUptimes();
+    }
+
+    /**
+     * Rollups are grouped off main thread, list is updated once they are read.
+     */
+    private void readUptimes() {
+        UPTIME_READER.execute(() -> {
+            final Map<Long, Uptime>[] uptimes = findUptimes(dbHelper);
+            if (uptimes != null) {
+                runOnUiThread(() -> {
+                    setUptimes(uptimes);
+                    siteSettingsAdapter.notifyDataSetChanged();
+                });
+            }
+        });
+    }
+
+    /**
+     * One query per period for all sites.
+     *
+     * @return uptimes of each period by site id, null if rollups can't be read
+     */
+    private static Map<Long, Uptime>[] findUptimes(DBHelper dbHelper) {
+        try {
+            DBCallRollup dbCallRollup = dbHelper.getDBCallRollup();
+            long now = System.currentTimeMillis();
+            @SuppressWarnings("unchecked")
+            Map<Long, Uptime>[] uptimes = new Map[DBCallRollup.PERIODS.length];
+            for (int i = 0; i < DBCallRollup.PERIODS.length; i++) {
+                uptimes[i] = dbCallRollup.findUptimes(now - DBCallRollup.PERIODS[i], now);
+            }
+            return uptimes;
+        } catch (SQLException e) {
+            Log.e(TAG, "findUptimes", e);
+            return null;
+        }
+    }
+
+    private void setUptimes(Map<Long, Uptime>[] uptimes) {
+        for (SiteSettingsBusiness siteSettingsBusiness : siteSettingsList) {
+            siteSettingsBusiness.setUptimes(UptimeUtil.percentsOf(uptimes, siteSettingsBusiness.getId()));
+        }
+    }
+
     @Override
     public void onFaviconUpdated(SiteSettings siteSettings, Bitmap favicon) {
         int position = siteSettingsAdapter.getPosition(new SiteSettingsBusiness(siteSettings));
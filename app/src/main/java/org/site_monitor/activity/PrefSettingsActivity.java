@@ -23,6 +23,8 @@ import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
@@ -30,13 +32,17 @@ import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.preference.RingtonePreference;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.MenuItem;
+import android.widget.Toast;
 
 import org.site_monitor.R;
+import org.site_monitor.model.db.DBHelper;
 import org.site_monitor.receiver.StartupBootReceiver;
 import org.site_monitor.util.AlarmUtil;
 import org.site_monitor.util.TimeUtil;
 
+import java.sql.SQLException;
 import java.util.List;
 
 import androidx.core.app.NavUtils;
@@ -62,6 +68,18 @@ public class PrefSettingsActivity extends AppCompatPreferenceActivity {
     public static final String NOTIFICATION_LIGHT_COLOR = "notification_light_color";
     public static final String BOOT_START = "boot_start";
     public static final String FREQUENCY = "frequency";
+    public static final String CHECK_CONCURRENCY = "check_concurrency";
+    public static final String PROBE_ENGINE = "probe_engine";
+    public static final String KEEP_ALIVE = "keep_alive";
+    public static final String KEEP_ALIVE_IDLE_TTL = "keep_alive_idle_ttl";
+    public static final String KEEP_ALIVE_POOL_SIZE = "keep_alive_pool_size";
+    public static final String RACE_ROUTES = "race_routes";
+    public static final String RETRY_MAX_ATTEMPTS = "retry_max_attempts";
+    public static final String RETRY_BUDGET = "retry_budget";
+    public static final String RETRY_ON = "retry_on";
+    public static final String PACK_HISTORY = "pack_history";
+    public static final String COMPACT_DATABASE = "compact_database";
+    private static final String TAG = PrefSettingsActivity.class.getSimpleName();
     /**
      * Determines whether to always show the simplified settings UI, where
      * settings are presented in a single list. When false, settings are shown
@@ -125,6 +143,35 @@ public class PrefSettingsActivity extends AppCompatPreferenceActivity {
         }
     };
 
+    /**
+     * Full vacuum of database, on writer thread so that history writes wait for it.
+     */
+    private static Preference.OnPreferenceClickListener sCompactListener = new Preference.OnPreferenceClickListener() {
+        @Override
+        public boolean onPreferenceClick(final Preference preference) {
+            final Context context = preference.getContext().getApplicationContext();
+            preference.setEnabled(false);
+            new Thread(() -> {
+                boolean compacted = false;
+                try {
+                    DBHelper dbHelper = DBHelper.getHelper(context);
+                    dbHelper.getWriter().call(() -> {
+                        dbHelper.compact();
+                        return null;
+                    });
+                    compacted = true;
+                } catch (SQLException e) {
+                    Log.e(TAG, "compact", e);
+                }
+                final int message = compacted ? R.string.compact_done : R.string.compact_failed;
+                new Handler(Looper.getMainLooper()).post(() -> {
+                    preference.setEnabled(true);
+                    Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+                });
+            }).start();
+            return true;
+        }
+    };
 
     /**
      * Helper method to determine if the device has an extra-large screen. For example, 10" tablets are extra-large.
@@ -246,11 +293,18 @@ public class PrefSettingsActivity extends AppCompatPreferenceActivity {
         // their summaries are dataChanged to reflect the new value, per the Android Design guidelines.
         bindPreferenceSummaryToValue(findPreference(NOTIFICATIONS_RINGTONE));
         bindPreferenceSummaryToValue(findPreference(FREQUENCY));
+        bindPreferenceSummaryToValue(findPreference(CHECK_CONCURRENCY));
+        bindPreferenceSummaryToValue(findPreference(PROBE_ENGINE));
+        bindPreferenceSummaryToValue(findPreference(KEEP_ALIVE_IDLE_TTL));
+        bindPreferenceSummaryToValue(findPreference(KEEP_ALIVE_POOL_SIZE));
+        bindPreferenceSummaryToValue(findPreference(RETRY_MAX_ATTEMPTS));
+        bindPreferenceSummaryToValue(findPreference(RETRY_BUDGET));
         bindPreferenceSummaryToValue(findPreference(NOTIFICATION_LIGHT_COLOR));
 
         findPreference(BOOT_START).setOnPreferenceChangeListener(sPreferenceListener);
         findPreference(NOTIFICATION_LIMIT_TO_NEW_FAIL).setOnPreferenceChangeListener(sPreferenceListener);
         findPreference(NOTIFICATION_ENABLE).setOnPreferenceChangeListener(sPreferenceListener);
+        findPreference(COMPACT_DATABASE).setOnPreferenceClickListener(sCompactListener);
     }
 
     /**
@@ -292,6 +346,12 @@ public class PrefSettingsActivity extends AppCompatPreferenceActivity {
             // Bind the summaries of EditText/List/Dialog/Ringtone preferences to their values. When their values change, their summaries are
             // dataChanged to reflect the new value, per the Android Design guidelines.
             bindPreferenceSummaryToValue(findPreference(FREQUENCY));
+            bindPreferenceSummaryToValue(findPreference(CHECK_CONCURRENCY));
+            bindPreferenceSummaryToValue(findPreference(PROBE_ENGINE));
+            bindPreferenceSummaryToValue(findPreference(KEEP_ALIVE_IDLE_TTL));
+            bindPreferenceSummaryToValue(findPreference(KEEP_ALIVE_POOL_SIZE));
+            bindPreferenceSummaryToValue(findPreference(RETRY_MAX_ATTEMPTS));
+            bindPreferenceSummaryToValue(findPreference(RETRY_BUDGET));
 
             findPreference(BOOT_START).setOnPreferenceChangeListener(sPreferenceListener);
         }
@@ -306,6 +366,8 @@ public class PrefSettingsActivity extends AppCompatPreferenceActivity {
         public void onCreate(Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
             addPreferencesFromResource(R.xml.pref_history);
+
+            findPreference(COMPACT_DATABASE).setOnPreferenceClickListener(sCompactListener);
         }
     }
 }
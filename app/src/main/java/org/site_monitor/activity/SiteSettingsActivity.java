@@ -32,6 +32,7 @@ import com.google.android.material.snackbar.Snackbar;
 import org.site_monitor.R;
 import org.site_monitor.activity.fragment.SiteSettingsActivityFragment;
 import org.site_monitor.model.adapter.SiteSettingsBusiness;
+import org.site_monitor.model.bo.Incident;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
 import org.site_monitor.model.db.DBHelper;
@@ -39,11 +40,16 @@ import org.site_monitor.model.db.DBSiteSettings;
 import org.site_monitor.service.FavIconService;
 import org.site_monitor.task.CallSiteTask;
 import org.site_monitor.task.TaskCallback;
+import org.site_monitor.util.AdaptiveTimeout;
 import org.site_monitor.util.AlarmUtil;
+import org.site_monitor.util.RecentCalls;
 import org.site_monitor.widget.WidgetManager;
 
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 import androidx.annotation.NonNull;
@@ -56,6 +62,11 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
     private static final String P_SITE_SETTINGS = "org.site_monitor.activity.SiteSettingsActivity.site";
     private static final String TAG_TASK_FRAGMENT = "site_settings_activity_task_fragment";
     private static final String PARCEL_SITE = "site";
+    // history is read by pages by SiteCallAdapter, last call gives error of site
+    private static final long HISTORY_SIZE = 1;
+    private static final long INCIDENTS_SIZE = 50;
+    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm", Locale.getDefault());
+    private static final String SEPARATOR = " · ";
     private SiteSettingsBusiness siteSettings;
     private MenuItem syncMenuItem;
     private MenuItem addInternalIpMenuItem;
@@ -87,7 +98,7 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
                     finish();
                 }
                 assert dbSiteSettings != null;
-                siteSettings = new SiteSettingsBusiness(dbSiteSettings);
+                siteSettings = new SiteSettingsBusiness(dbSiteSettings, dbHelper.getDBSiteCall().findLastCalls(dbSiteSettings, HISTORY_SIZE));
             } catch (SQLException e) {
                 Log.e(TAG, "search for host", e);
                 Toast.makeText(this, R.string.site_not_found, Toast.LENGTH_SHORT).show();
@@ -109,14 +120,6 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
         siteSettingsFragment.setSiteSettings(siteSettings);
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (dbHelper != null) {
-            dbHelper.release();
-        }
-    }
-
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -159,7 +162,7 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
                 try {
                     siteSettings.getSiteSettings().setInternalUrl(null);
                     DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
-                    dbSiteSettings.update(siteSettings.getSiteSettings());
+                    dbSiteSettings.updateInternalUrl(siteSettings.getSiteSettings());
                     addInternalIpMenuItem.setChecked(!addInternalIpMenuItem.isChecked());
                     assert siteSettingsFragment.getView() != null;
                     Snackbar.make(siteSettingsFragment.getView(), R.string.internal_url_removed, Snackbar.LENGTH_SHORT).show();
@@ -182,7 +185,7 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
                     try {
                         siteSettings.getSiteSettings().setInternalUrl(internalIp);
                         DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
-                        dbSiteSettings.update(siteSettings.getSiteSettings());
+                        dbSiteSettings.updateInternalUrl(siteSettings.getSiteSettings());
                         addInternalIpMenuItem.setChecked(!addInternalIpMenuItem.isChecked());
                         Snackbar.make(Objects.requireNonNull(input), R.string.internal_url_added, Snackbar.LENGTH_SHORT).show();
                         siteSettingsFragment.setSiteSettings(siteSettings);
@@ -196,9 +199,152 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
             }
             return true;
         }
+        if (id == R.id.action_set_timeout) {
+            AlertDialog.Builder builder = getTimeoutDialogBuilder();
+            builder.show();
+            return true;
+        }
+        if (id == R.id.action_set_max_attempts) {
+            AlertDialog.Builder builder = getMaxAttemptsDialogBuilder();
+            builder.show();
+            return true;
+        }
+        if (id == R.id.action_set_retention) {
+            AlertDialog.Builder builder = getRetentionDialogBuilder();
+            builder.show();
+            return true;
+        }
+        if (id == R.id.action_incidents) {
+            AlertDialog.Builder builder = getIncidentsDialogBuilder();
+            builder.show();
+            return true;
+        }
         return false;
     }
 
+    private AlertDialog.Builder getTimeoutDialogBuilder() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle(R.string.action_set_timeout);
+        final EditText input = new EditText(context);
+        input.setHint(R.string.hint_timeout);
+        if (siteSettings.getSiteSettings().getTimeout() != null) {
+            input.setText(String.valueOf(siteSettings.getSiteSettings().getTimeout()));
+        }
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        builder.setView(input);
+        builder.setPositiveButton(R.string.action_set_timeout, (dialog, which) -> {
+            String timeout = input.getText().toString().trim();
+            try {
+                // a timeout out of range of adapted ones would fail every call or hold a cycle
+                siteSettings.getSiteSettings().setTimeout(timeout.isEmpty() ? null
+                        : Math.max(AdaptiveTimeout.MIN_TIMEOUT, Math.min(AdaptiveTimeout.MAX_TIMEOUT, Integer.parseInt(timeout))));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            try {
+                DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
+                dbSiteSettings.updateTimeout(siteSettings.getSiteSettings());
+                assert siteSettingsFragment.getView() != null;
+                Snackbar.make(siteSettingsFragment.getView(), timeout.isEmpty() ? R.string.timeout_automatic : R.string.timeout_set, Snackbar.LENGTH_SHORT).show();
+            } catch (SQLException e) {
+                Log.e(TAG, "update", e);
+            }
+        });
+        builder.setNegativeButton(R.string.action_cancel, (dialog, which) -> {
+        });
+        return builder;
+    }
+
+    private AlertDialog.Builder getMaxAttemptsDialogBuilder() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle(R.string.action_set_max_attempts);
+        final EditText input = new EditText(context);
+        input.setHint(R.string.hint_max_attempts);
+        if (siteSettings.getSiteSettings().getMaxAttempts() != null) {
+            input.setText(String.valueOf(siteSettings.getSiteSettings().getMaxAttempts()));
+        }
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        builder.setView(input);
+        builder.setPositiveButton(R.string.action_set_max_attempts, (dialog, which) -> {
+            String maxAttempts = input.getText().toString().trim();
+            try {
+                siteSettings.getSiteSettings().setMaxAttempts(maxAttempts.isEmpty() ? null : Math.max(1, Integer.parseInt(maxAttempts)));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            try {
+                DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
+                dbSiteSettings.updateMaxAttempts(siteSettings.getSiteSettings());
+                assert siteSettingsFragment.getView() != null;
+                Snackbar.make(siteSettingsFragment.getView(), maxAttempts.isEmpty() ? R.string.max_attempts_default : R.string.max_attempts_set, Snackbar.LENGTH_SHORT).show();
+            } catch (SQLException e) {
+                Log.e(TAG, "update", e);
+            }
+        });
+        builder.setNegativeButton(R.string.action_cancel, (dialog, which) -> {
+        });
+        return builder;
+    }
+
+    private AlertDialog.Builder getRetentionDialogBuilder() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle(R.string.action_set_retention);
+        final EditText input = new EditText(context);
+        input.setHint(R.string.hint_retention);
+        if (siteSettings.getSiteSettings().getRetentionDays() != null) {
+            input.setText(String.valueOf(siteSettings.getSiteSettings().getRetentionDays()));
+        }
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        builder.setView(input);
+        builder.setPositiveButton(R.string.action_set_retention, (dialog, which) -> {
+            String retentionDays = input.getText().toString().trim();
+            try {
+                siteSettings.getSiteSettings().setRetentionDays(retentionDays.isEmpty() ? null : Math.max(1, Integer.parseInt(retentionDays)));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            try {
+                DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
+                dbSiteSettings.updateRetentionDays(siteSettings.getSiteSettings());
+                assert siteSettingsFragment.getView() != null;
+                Snackbar.make(siteSettingsFragment.getView(), retentionDays.isEmpty() ? R.string.retention_default : R.string.retention_set, Snackbar.LENGTH_SHORT).show();
+            } catch (SQLException e) {
+                Log.e(TAG, "update", e);
+            }
+        });
+        builder.setNegativeButton(R.string.action_cancel, (dialog, which) -> {
+        });
+        return builder;
+    }
+
+    private AlertDialog.Builder getIncidentsDialogBuilder() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(context);
+        builder.setTitle(R.string.action_incidents);
+        List<Incident> incidents;
+        try {
+            incidents = dbHelper.getDBIncident().findLast(siteSettings.getSiteSettings(), INCIDENTS_SIZE);
+        } catch (SQLException e) {
+            Log.e(TAG, "incidents", e);
+            incidents = Collections.emptyList();
+        }
+        if (incidents.isEmpty()) {
+            builder.setMessage(R.string.no_incident);
+        } else {
+            CharSequence[] items = new CharSequence[incidents.size()];
+            for (int i = 0; i < items.length; i++) {
+                Incident incident = incidents.get(i);
+                String start = DATE_FORMAT.format(incident.getStartDate());
+                String text = incident.isOpen() ? getString(R.string.incident_open, start, incident.getFailCount())
+                        : getString(R.string.incident_closed, start, DATE_FORMAT.format(incident.getEndDate()), incident.getFailCount());
+                items[i] = incident.getError() == null ? text : text + SEPARATOR + incident.getError();
+            }
+            builder.setItems(items, null);
+        }
+        builder.setPositiveButton(android.R.string.ok, (dialog, which) -> {
+        });
+        return builder;
+    }
+
     private AlertDialog.Builder getRenameDialogBuilder() {
         AlertDialog.Builder builder = new AlertDialog.Builder(context);
         builder.setTitle(R.string.action_rename);
@@ -216,7 +362,7 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
             setTitle(siteSettings.getName());
             try {
                 DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
-                dbSiteSettings.update(siteSettings.getSiteSettings());
+                dbSiteSettings.updateName(siteSettings.getSiteSettings());
                 WidgetManager.refresh(context);
             } catch (SQLException e) {
                 Log.e(TAG, "rename", e);
@@ -232,15 +378,21 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setMessage(R.string.remove_current_monitor);
         builder.setPositiveButton(R.string.action_delete, (dialog, which) -> {
-            try {
-                DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
-                dbSiteSettings.delete(siteSettings.getSiteSettings());
-                AlarmUtil.instance().stopAlarmIfNeeded(context);
-            } catch (SQLException e) {
-                Log.e(TAG, "remove", e);
-            }
-            WidgetManager.refresh(context);
-            finish();
+            final SiteSettings removed = siteSettings.getSiteSettings();
+            // whole history goes in one transaction, off main thread
+            new Thread(() -> {
+                try {
+                    dbHelper.removeSite(removed);
+                    RecentCalls.instance().remove(removed);
+                    AlarmUtil.instance().stopAlarmIfNeeded(context);
+                } catch (SQLException e) {
+                    Log.e(TAG, "remove", e);
+                }
+                runOnUiThread(() -> {
+                    WidgetManager.refresh(context);
+                    finish();
+                });
+            }).start();
         });
 
         builder.setNegativeButton(R.string.action_cancel, (dialog, which) -> {
@@ -252,7 +404,7 @@ public class SiteSettingsActivity extends AppCompatActivity implements SiteSetti
     public void hasChanged(SiteSettings siteSettings) {
         try {
             DBSiteSettings dbSiteSettings = dbHelper.getDBSiteSettings();
-            dbSiteSettings.update(siteSettings);
+            dbSiteSettings.updateOptions(siteSettings);
         } catch (SQLException e) {
             Log.e(TAG, "hasChanged", e);
         }
@@ -18,40 +18,127 @@ package org.site_monitor.activity.adapter;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.TextView;
 
 import com.google.android.material.snackbar.Snackbar;
 
 import org.site_monitor.R;
 import org.site_monitor.model.adapter.SiteSettingsBusiness;
+import org.site_monitor.model.bo.CallRoute;
 import org.site_monitor.model.bo.NetworkCallResult;
 import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.db.DBCallSegment;
+import org.site_monitor.model.db.DBHelper;
+import org.site_monitor.model.db.DBSiteCall;
 
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import androidx.annotation.NonNull;
 
 /**
- * Created by norbert on 26/07/2015.
+ * Created by norbert on 26/07/2015.<br/>
+ * History of a site, most recent first, read by pages of {@link #PAGE_SIZE} calls as list scrolls.
+ * First page and at most {@link #MAX_PAGES} others are kept, others are read again when scrolled back to, from last call of page before.<br/>
+ * Once raw calls run out, pages go on with packed days ({@link DBCallSegment}), if history is packed.<br/>
+ * Pages are read on a background thread, list is notified once one is read: a call of a page not read yet shows as an empty cell meanwhile.
  */
-public class SiteCallAdapter extends ArrayAdapter<SiteCall> {
+public class SiteCallAdapter extends BaseAdapter {
 
+    public static final int PAGE_SIZE = 100;
+    public static final int MAX_PAGES = 5;
+    private static final String TAG = SiteCallAdapter.class.getSimpleName();
     private static final String MS = "ms";
     private static final String UNKNOWN = "?";
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm", Locale.getDefault());
     private static final String HTTP = "HTTP-";
     private static final String SPACE = " ";
     private static final String EMPTY = "";
+    private static final String DNS = "DNS ";
+    private static final String CONNECT = "TCP ";
+    private static final String TLS = "TLS ";
+    private static final String TTFB = "TTFB ";
+    private static final String SEPARATOR = " · ";
+    // one reader for all histories, pages are read in request order
+    private static final ExecutorService PAGE_READER = Executors.newSingleThreadExecutor();
+    private final Context context;
     private final LayoutInflater inflater;
+    private final SiteSettingsBusiness siteSettings;
+    // calls made since first page was read, most recent first, not yet written when received
+    private final List<SiteCall> newCalls = new ArrayList<>();
+    private List<SiteCall> firstPage;
+    // last call of each page read, key of page after it
+    private final List<SiteCall> pageEnds = new ArrayList<>();
+    private final Map<Integer, List<SiteCall>> pages = new LinkedHashMap<Integer, List<SiteCall>>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<SiteCall>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // indexes of pages being read
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int count;
+    private boolean hasMore = true;
 
     public SiteCallAdapter(Context context, SiteSettingsBusiness siteSettings) {
-        super(context, R.layout.cell_site_call, R.id.mainTextView, siteSettings.getCalls());
+        this.context = context;
         this.inflater = LayoutInflater.from(context);
+        this.siteSettings = siteSettings;
+        requestPage(0);
+    }
+
+    /**
+     * Shows a new call of site on top of history.
+     */
+    public void onCall(SiteCall siteCall) {
+        newCalls.add(0, siteCall);
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return newCalls.size() + count;
+    }
+
+    /**
+     * @return call at position, null while its page is read or if page read again is shorter
+     */
+    @Override
+    public SiteCall getItem(int position) {
+        if (position < newCalls.size()) {
+            return newCalls.get(position);
+        }
+        position -= newCalls.size();
+        int index = position / PAGE_SIZE;
+        List<SiteCall> page = index == 0 ? firstPage : pages.get(index);
+        if (page == null) {
+            requestPage(index);
+            return null;
+        }
+        return position % PAGE_SIZE < page.size() ? page.get(position % PAGE_SIZE) : null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
     }
 
     @Override
@@ -59,13 +146,105 @@ public class SiteCallAdapter extends ArrayAdapter<SiteCall> {
         if (convertView == null) {
             convertView = inflater.inflate(R.layout.cell_site_call, parent, false);
         }
-        // order desc
-        position = getCount() - position - 1;
-        final ViewHandler viewHandler = new ViewHandler(convertView, position);
-        updateView(viewHandler);
+        if (position == getCount() - 1 && hasMore) {
+            // next page extends list once it is read
+            requestPage(pageEnds.size());
+        }
+        SiteCall siteCall = getItem(position);
+        // page not read yet, or read again with calls purged meanwhile: recycled view must not show another call
+        if (siteCall != null) {
+            updateView(new ViewHandler(convertView, siteCall));
+        } else {
+            clearView(convertView);
+        }
         return convertView;
     }
 
+    private Context getContext() {
+        return context;
+    }
+
+    /**
+     * Reads page in background unless it is being read, list is notified once it is read.
+     *
+     * @param index index of page, at most one page after last read
+     */
+    private void requestPage(final int index) {
+        if (!pendingPages.add(index)) {
+            return;
+        }
+        final SiteCall after = index == 0 ? null : pageEnds.get(index - 1);
+        PAGE_READER.execute(() -> {
+            final List<SiteCall> page = readPage(index, after);
+            mainHandler.post(() -> {
+                pendingPages.remove(index);
+                onPageRead(index, page);
+                notifyDataSetChanged();
+            });
+        });
+    }
+
+    /**
+     * A page ending with a packed call, which has no id, is followed by packed calls only: packed days are older than raw calls.
+     *
+     * @param after last call of page before, null for first page
+     * @return calls of page, null if history can't be read
+     */
+    private List<SiteCall> readPage(int index, SiteCall after) {
+        try {
+            DBHelper dbHelper = DBHelper.getHelper(context);
+            List<SiteCall> page = new ArrayList<>(PAGE_SIZE);
+            if (after == null || after.getId() != null) {
+                DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
+                page.addAll(dbSiteCall.findPage(siteSettings.getSiteSettings(), after, PAGE_SIZE));
+            }
+            if (page.size() < PAGE_SIZE) {
+                SiteCall last = page.isEmpty() ? after : page.get(page.size() - 1);
+                DBCallSegment dbCallSegment = dbHelper.getDBCallSegment();
+                page.addAll(dbCallSegment.findPageBefore(siteSettings.getSiteSettings(), last == null ? null : last.getDate().getTime(),
+                        PAGE_SIZE - page.size()));
+            }
+            return page;
+        } catch (SQLException e) {
+            Log.e(TAG, "readPage " + index, e);
+            return null;
+        }
+    }
+
+    /**
+     * First page is kept: read again, it would hold calls shown as new calls.
+     *
+     * @param page calls of page, null if history can't be read
+     */
+    private void onPageRead(int index, List<SiteCall> page) {
+        if (page == null) {
+            hasMore = false;
+            page = Collections.emptyList();
+        }
+        if (index == 0) {
+            firstPage = page;
+        } else {
+            pages.put(index, page);
+        }
+        if (index == pageEnds.size()) {
+            hasMore &= page.size() == PAGE_SIZE;
+            if (!page.isEmpty()) {
+                pageEnds.add(page.get(page.size() - 1));
+                count += page.size();
+            }
+        }
+    }
+
+    private void clearView(View view) {
+        ViewHandler viewHandler = new ViewHandler(view, null);
+        viewHandler.mainTextView.setText(EMPTY);
+        viewHandler.secondCodeTextView.setText(EMPTY);
+        viewHandler.responseTimeTextView.setText(EMPTY);
+        viewHandler.phasesTextView.setVisibility(View.GONE);
+        view.setBackgroundColor(view.getResources().getColor(R.color.state_unknown));
+        view.setOnClickListener(null);
+    }
+
     private void updateView(final ViewHandler viewHandler) {
         final String date = DATE_FORMAT.format(viewHandler.siteCall.getDate());
         viewHandler.mainTextView.setText(date);
@@ -94,6 +273,9 @@ public class SiteCallAdapter extends ArrayAdapter<SiteCall> {
         } else {
             viewHandler.responseTimeTextView.setText(EMPTY);
         }
+        String phases = phasesOf(viewHandler.siteCall);
+        viewHandler.phasesTextView.setText(phases);
+        viewHandler.phasesTextView.setVisibility(phases.isEmpty() ? View.GONE : View.VISIBLE);
 
         viewHandler.view.setOnClickListener(v -> {
             String prefixText = date + " - ";
@@ -119,20 +301,69 @@ public class SiteCallAdapter extends ArrayAdapter<SiteCall> {
         });
     }
 
+    /**
+     * @return breakdown of response time by phase (DNS, connect, TLS, time to first byte), retries, cycles skipped before call and route if internal,
+     * empty if none known
+     */
+    private String phasesOf(SiteCall siteCall) {
+        StringBuilder builder = new StringBuilder();
+        appendPhase(builder, DNS, siteCall.getDnsTime());
+        appendPhase(builder, CONNECT, siteCall.getConnectTime());
+        appendPhase(builder, TLS, siteCall.getHandshakeTime());
+        appendPhase(builder, TTFB, siteCall.getTtfbTime());
+        if (Boolean.TRUE.equals(siteCall.getConnectionReused())) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(getContext().getString(R.string.connection_reused));
+        }
+        if (siteCall.getAttempts() != null && siteCall.getAttempts() > 1) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(getContext().getString(R.string.retries, siteCall.getAttempts() - 1, siteCall.getRetryTime()));
+        }
+        if (siteCall.getSkippedCycles() != null) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(getContext().getString(R.string.skipped_cycles, siteCall.getSkippedCycles()));
+        }
+        if (siteCall.getRoute() == CallRoute.INTERNAL) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(getContext().getString(R.string.internal_route));
+        }
+        return builder.toString();
+    }
+
+    private static void appendPhase(StringBuilder builder, String label, Long time) {
+        if (time == null) {
+            return;
+        }
+        if (builder.length() > 0) {
+            builder.append(SEPARATOR);
+        }
+        builder.append(label).append(time).append(MS);
+    }
+
     private class ViewHandler {
 
         final TextView mainTextView;
         final TextView secondCodeTextView;
         final TextView responseTimeTextView;
+        final TextView phasesTextView;
         final SiteCall siteCall;
         final View view;
 
-        ViewHandler(View view, int position) {
+        ViewHandler(View view, SiteCall siteCall) {
             this.view = view;
-            this.siteCall = getItem(position);
+            this.siteCall = siteCall;
             this.mainTextView = view.findViewById(R.id.mainTextView);
             this.secondCodeTextView = view.findViewById(R.id.secondTextView);
             this.responseTimeTextView = view.findViewById(R.id.responseTimeTextView);
+            this.phasesTextView = view.findViewById(R.id.phasesTextView);
         }
     }
 }
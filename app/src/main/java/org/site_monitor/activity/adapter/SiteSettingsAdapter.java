@@ -19,7 +19,6 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.PorterDuff;
 import android.text.format.DateUtils;
-import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,7 +32,7 @@ import androidx.annotation.NonNull;
 import org.site_monitor.R;
 import org.site_monitor.model.adapter.SiteSettingsBusiness;
 import org.site_monitor.model.bo.NetworkCallResult;
-import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.util.UptimeUtil;
 
 import java.util.List;
 
@@ -71,14 +70,15 @@ public class SiteSettingsAdapter extends ArrayAdapter<SiteSettingsBusiness> {
 
     private void updateView(ViewHandler viewHandler) {
         viewHandler.nameTextView.setText(viewHandler.siteSettings.getName());
-        List<SiteCall> calls = viewHandler.siteSettings.getCalls();
+        String uptimeText = UptimeUtil.format(getContext(), viewHandler.siteSettings.getUptimes());
+        viewHandler.uptimeText.setText(uptimeText);
+        viewHandler.uptimeText.setVisibility(uptimeText.isEmpty() ? View.GONE : View.VISIBLE);
+        NetworkCallResult lastResult = viewHandler.siteSettings.getLastResult();
         Resources resources = viewHandler.view.getResources();
-        if (!calls.isEmpty()) {
-            int lastCall = calls.size() - 1;
-            SiteCall siteCall = calls.get(lastCall);
-            if (siteCall.getResult() == NetworkCallResult.SUCCESS) {
+        if (lastResult != null) {
+            if (lastResult == NetworkCallResult.SUCCESS) {
                 viewHandler.stateImage.getBackground().setColorFilter(resources.getColor(R.color.state_success), PorterDuff.Mode.SRC);
-            } else if (siteCall.getResult() == NetworkCallResult.FAIL) {
+            } else if (lastResult == NetworkCallResult.FAIL) {
                 viewHandler.stateImage.getBackground().setColorFilter(resources.getColor(R.color.state_fail), PorterDuff.Mode.SRC);
             } else {
                 viewHandler.stateImage.getBackground().setColorFilter(resources.getColor(R.color.state_unknown), PorterDuff.Mode.SRC);
@@ -87,7 +87,7 @@ public class SiteSettingsAdapter extends ArrayAdapter<SiteSettingsBusiness> {
             viewHandler.stateImage.getBackground().setColorFilter(resources.getColor(R.color.state_unknown), PorterDuff.Mode.SRC);
         }
         // HACK: is empty is a hack to show progress on create action cause listener is register to late to catch start refresh
-        if (viewHandler.siteSettings.isChecking() || viewHandler.siteSettings.getCalls().isEmpty()) {
+        if (viewHandler.siteSettings.isChecking() || !viewHandler.siteSettings.hasCalls()) {
             viewHandler.progressBar.setVisibility(View.VISIBLE);
         } else {
             viewHandler.progressBar.setVisibility(View.INVISIBLE);
@@ -101,8 +101,7 @@ public class SiteSettingsAdapter extends ArrayAdapter<SiteSettingsBusiness> {
         viewHandler.faviconImage.setImageBitmap(viewHandler.siteSettings.getFavicon());
 
         if (viewHandler.siteSettings.isInFail()) {
-            Pair<SiteCall, SiteCall> lastFailPeriod = viewHandler.siteSettings.getLastFailPeriod();
-            CharSequence lastFailText = DateUtils.getRelativeTimeSpanString(lastFailPeriod.first.getDate().getTime());
+            CharSequence lastFailText = DateUtils.getRelativeTimeSpanString(viewHandler.siteSettings.getFailStart().getTime());
             viewHandler.lastFailText.setText(lastFailText);
             viewHandler.lastFailText.setVisibility(View.VISIBLE);
         } else {
@@ -119,6 +118,7 @@ public class SiteSettingsAdapter extends ArrayAdapter<SiteSettingsBusiness> {
         final View view;
         final SiteSettingsBusiness siteSettings;
         final TextView nameTextView;
+        final TextView uptimeText;
         final ProgressBar progressBar;
         final TextView lastFailText;
         final ImageView faviconImage;
@@ -129,6 +129,7 @@ public class SiteSettingsAdapter extends ArrayAdapter<SiteSettingsBusiness> {
             this.siteSettings = getItem(position);
             this.view = view;
             this.nameTextView = view.findViewById(R.id.nameText);
+            this.uptimeText = view.findViewById(R.id.uptimeText);
             this.progressBar = view.findViewById(R.id.progressBar);
             this.faviconImage = view.findViewById(R.id.faviconImage);
             this.notificationImage = view.findViewById(R.id.notificationImage);
@@ -16,9 +16,11 @@
 package org.site_monitor.activity.fragment;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.IntentFilter;
 import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -34,13 +36,18 @@ import org.site_monitor.activity.adapter.SiteCallAdapter;
 import org.site_monitor.model.adapter.SiteSettingsBusiness;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.db.DBCallRollup;
+import org.site_monitor.model.db.DBHelper;
 import org.site_monitor.receiver.internal.NetworkBroadcastReceiver;
 import org.site_monitor.service.FavIconService;
 import org.site_monitor.service.NetworkService;
+import org.site_monitor.util.LatencySketch;
+import org.site_monitor.util.UptimeUtil;
 
 import androidx.annotation.NonNull;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import java.sql.SQLException;
 import java.util.Objects;
 
 /**
@@ -48,6 +55,7 @@ import java.util.Objects;
  */
 public class SiteSettingsActivityFragment extends TaskFragment implements NetworkBroadcastReceiver.Listener {
 
+    private static final String TAG = SiteSettingsActivityFragment.class.getSimpleName();
     private CompoundButton trustCertificateCheckable;
     private View trustCertificateView;
     private CompoundButton notificationCheckable;
@@ -57,6 +65,8 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
     private ListView callListView;
     private ProgressBar progressBar;
     private ImageView faviconView;
+    private TextView latencyTextView;
+    private TextView uptimeTextView;
 
     private Callback callback;
     private SiteSettingsBusiness siteSettings;
@@ -86,6 +96,8 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
         internalUrlTextView = view.findViewById(R.id.internalIpTextView);
         progressBar = view.findViewById(R.id.progressBar);
         faviconView = view.findViewById(R.id.faviconImage);
+        latencyTextView = view.findViewById(R.id.latencyTextView);
+        uptimeTextView = view.findViewById(R.id.uptimeTextView);
         return view;
     }
 
@@ -93,6 +105,7 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
     public void onResume() {
         super.onResume();
         updateView();
+        updateStatistics();
         notificationCheckable.setOnCheckedChangeListener((buttonView, isChecked) -> {
             siteSettings.getSiteSettings().setNotificationEnabled(isChecked);
             callback.hasChanged(siteSettings.getSiteSettings());
@@ -107,6 +120,7 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
         }
         LocalBroadcastManager.getInstance(requireActivity()).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_SITE_START_REFRESH));
         LocalBroadcastManager.getInstance(requireActivity()).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_SITE_END_REFRESH));
+        LocalBroadcastManager.getInstance(requireActivity()).registerReceiver(networkBroadcastReceiver, new IntentFilter(NetworkService.ACTION_CALLS_WRITTEN));
         LocalBroadcastManager.getInstance(requireActivity()).registerReceiver(networkBroadcastReceiver, new IntentFilter(FavIconService.ACTION_FAVICON_UPDATED));
     }
 
@@ -145,7 +159,7 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
                 trustCertificateView.setVisibility(View.GONE);
             }
             // HACK: is empty is a hack to show progress on create action cause listener is register to late to catch start refresh
-            if (siteSettings.isChecking() || siteSettings.getCalls().isEmpty()) {
+            if (siteSettings.isChecking() || !siteSettings.hasCalls()) {
                 progressBar.setVisibility(View.VISIBLE);
             } else {
                 progressBar.setVisibility(View.INVISIBLE);
@@ -155,6 +169,78 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
         }
     }
 
+    /**
+     * Reads uptime and latency of site in background, from rollups written with calls, then shows them.
+     */
+    private void updateStatistics() {
+        if (siteSettings == null || uptimeTextView == null) {
+            return;
+        }
+        final Context context = requireContext().getApplicationContext();
+        final SiteSettings site = siteSettings.getSiteSettings();
+        new Thread(() -> {
+            final Double[] uptimes = findUptimes(context, site);
+            final String latency = findLatency(context, site);
+            Activity activity = getActivity();
+            if (activity == null) {
+                return;
+            }
+            activity.runOnUiThread(() -> {
+                if (!isAdded() || siteSettings == null || !site.equals(siteSettings.getSiteSettings())) {
+                    return;
+                }
+                siteSettings.setUptimes(uptimes);
+                String uptimeText = UptimeUtil.format(context, uptimes);
+                uptimeTextView.setText(uptimeText.isEmpty() ? getString(R.string.no_uptime) : uptimeText);
+                latencyTextView.setText(latency.isEmpty() ? getString(R.string.no_latency) : latency);
+            });
+        }).start();
+    }
+
+    /**
+     * Share of successful calls over each period, summed from counters of rollups.
+     */
+    private static Double[] findUptimes(Context context, SiteSettings site) {
+        Double[] uptimes = new Double[DBCallRollup.PERIODS.length];
+        long now = System.currentTimeMillis();
+        try {
+            DBCallRollup dbCallRollup = DBHelper.getHelper(context).getDBCallRollup();
+            for (int i = 0; i < DBCallRollup.PERIODS.length; i++) {
+                uptimes[i] = dbCallRollup.findUptime(site, now - DBCallRollup.PERIODS[i], now).getPercent();
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "findUptimes", e);
+        }
+        return uptimes;
+    }
+
+    /**
+     * Percentiles of response times over each period, merged from sketches of rollups.
+     *
+     * @return one line per period having successful calls, empty if none
+     */
+    private static String findLatency(Context context, SiteSettings site) {
+        StringBuilder builder = new StringBuilder();
+        long now = System.currentTimeMillis();
+        try {
+            DBCallRollup dbCallRollup = DBHelper.getHelper(context).getDBCallRollup();
+            for (int i = 0; i < DBCallRollup.PERIODS.length; i++) {
+                LatencySketch sketch = dbCallRollup.findSketch(site, now - DBCallRollup.PERIODS[i], now);
+                if (sketch.getCount() == 0) {
+                    continue;
+                }
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(context.getString(R.string.latency_window, context.getString(UptimeUtil.PERIOD_NAMES[i]),
+                        sketch.quantile(0.5), sketch.quantile(0.95), sketch.quantile(0.99)));
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "findLatency", e);
+        }
+        return builder.toString();
+    }
+
     public void setSiteSettings(SiteSettingsBusiness siteSettings) {
         this.siteSettings = siteSettings;
         updateView();
@@ -172,11 +258,27 @@ public class SiteSettingsActivityFragment extends TaskFragment implements Networ
     public void onSiteEndRefresh(SiteSettings siteSettings, SiteCall siteCall) {
         if (this.siteSettings != null && siteSettings.equals(this.siteSettings.getSiteSettings())) {
             this.siteSettings.setIsChecking(false);
-            this.siteSettings.getCalls().add(siteCall);
+            this.siteSettings.onCall(siteCall);
+            if (siteCallAdapter != null) {
+                siteCallAdapter.onCall(siteCall);
+            }
             updateView();
         }
     }
 
+    @Override
+    public void onCallsWritten(long[] siteIds) {
+        if (this.siteSettings == null) {
+            return;
+        }
+        for (long siteId : siteIds) {
+            if (this.siteSettings.getId() == siteId) {
+                updateStatistics();
+                return;
+            }
+        }
+    }
+
     @Override
     public void onFaviconUpdated(SiteSettings siteSettings, Bitmap favicon) {
         if (this.siteSettings != null && siteSettings.equals(this.siteSettings.getSiteSettings())) {
@@ -19,8 +19,8 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.Pair;
 
+import org.site_monitor.model.bo.CallError;
 import org.site_monitor.model.bo.NetworkCallResult;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
@@ -29,6 +29,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -36,10 +37,6 @@ import java.util.List;
  */
 public class SiteSettingsBusiness implements Parcelable {
 
-    public static final String CERT_PATH_EXCEPTION = "java.security.cert.CertPathValidatorException";
-
-    public static final String FAIL_TO_CONNECT_TO = "failed to connect to";
-
     public static final Creator<SiteSettingsBusiness> CREATOR = new Creator<SiteSettingsBusiness>() {
         @Override
         public SiteSettingsBusiness createFromParcel(Parcel in) {
@@ -61,71 +58,61 @@ public class SiteSettingsBusiness implements Parcelable {
     private boolean isChecking;
     private final List<SiteCall> siteCalls;
     private Bitmap faviconCache;
+    private Double[] uptimes = new Double[0];
 
     public SiteSettingsBusiness(SiteSettings siteSettings) {
-        this.siteSettings = siteSettings;
-        if (siteSettings.getSiteCalls() == null || siteSettings.getSiteCalls().isEmpty()) {
-            this.siteCalls = new ArrayList<SiteCall>();
-        } else {
-            this.siteCalls = new ArrayList<SiteCall>(siteSettings.getSiteCalls());
-            Collections.sort(this.siteCalls, SiteCall.ASC_DATE);
+        this(siteSettings, new ArrayList<SiteCall>());
+    }
 
-        }
+    /**
+     * @param siteSettings site
+     * @param siteCalls    calls of site loaded by caller, any order
+     */
+    public SiteSettingsBusiness(SiteSettings siteSettings, List<SiteCall> siteCalls) {
+        this.siteSettings = siteSettings;
+        this.siteCalls = new ArrayList<SiteCall>(siteCalls);
+        Collections.sort(this.siteCalls, SiteCall.ASC_DATE);
     }
 
     public SiteSettingsBusiness(Parcel in) {
         siteSettings = in.readParcelable(SiteSettings.class.getClassLoader());
         isChecking = in.readByte() != 0;
         siteCalls = in.readArrayList(SiteCall.class.getClassLoader());
+        uptimes = new Double[in.readInt()];
+        for (int i = 0; i < uptimes.length; i++) {
+            uptimes[i] = (Double) in.readValue(Double.class.getClassLoader());
+        }
     }
 
     public static boolean isCallCertError(SiteCall siteCall) {
-        if (siteCall == null || siteCall.getResult() != NetworkCallResult.FAIL || siteCall.getException() == null) {
-            return false;
-        }
-        return siteCall.getException().startsWith(CERT_PATH_EXCEPTION);
+        return siteCall != null && siteCall.getResult() == NetworkCallResult.FAIL && siteCall.getError() == CallError.CERT;
     }
 
     public static boolean isCallFailToConnectError(SiteCall lastCall) {
-        if (lastCall == null || lastCall.getResult() != NetworkCallResult.FAIL || lastCall.getException() == null) {
-            return false;
-        }
-        return lastCall.getException().startsWith(FAIL_TO_CONNECT_TO);
+        return lastCall != null && lastCall.getResult() == NetworkCallResult.FAIL
+                && (lastCall.getError() == CallError.REFUSED || lastCall.getError() == CallError.CONNECT_TIMEOUT);
     }
 
     /**
-     * @return 2 site calls representing last fail period, null if none
+     * @return date of first call of the fail period site is in, null if not in fail
      */
-    public Pair<SiteCall, SiteCall> getLastFailPeriod() {
-        SiteCall start = null;
-        SiteCall last = null;
-        // read last calls first
-        for (int i = siteCalls.size() - 1; i >= 0; i--) {
-            SiteCall siteCall = siteCalls.get(i);
-            if (last == null && siteCall.getResult() == NetworkCallResult.FAIL) {
-                last = siteCall;
-                // last call in fail is first call
-                if (i == 0) {
-                    start = last;
-                    break;
-                }
-                continue;
-            }
-            // when find non fail call get previous it's period start
-            if (siteCall.getResult() != NetworkCallResult.FAIL) {
-                start = siteCalls.get(i + 1);
-                break;
-            }
-        }
-        // no fail found
-        if (last == null) {
-            return null;
-        }
-        // first call is a fail
-        if (start == null) {
-            start = siteCalls.get(0);
-        }
-        return new Pair<SiteCall, SiteCall>(start, last);
+    public Date getFailStart() {
+        return isInFail() ? siteSettings.getStreakStart() : null;
+    }
+
+    /**
+     * @return true if site has been called, calls may not be loaded
+     */
+    public boolean hasCalls() {
+        return siteSettings.getLastCallDate() != null || !siteCalls.isEmpty();
+    }
+
+    /**
+     * Adds a new call of site and updates status of site with it.
+     */
+    public void onCall(SiteCall siteCall) {
+        siteCalls.add(siteCall);
+        siteSettings.updateStatus(siteCall);
     }
 
     public boolean isLastCallCertError() {
@@ -191,7 +178,7 @@ public class SiteSettingsBusiness implements Parcelable {
     }
 
     /**
-     * @return null if empty or last call
+     * @return null if empty or last loaded call
      */
     public SiteCall getLastCall() {
         if (siteCalls.isEmpty()) {
@@ -200,12 +187,26 @@ public class SiteSettingsBusiness implements Parcelable {
         return siteCalls.get(siteCalls.size() - 1);
     }
 
+    /**
+     * @return result of last call of site, null if never called
+     */
+    public NetworkCallResult getLastResult() {
+        return siteSettings.getLastResult();
+    }
+
     public boolean isInFail() {
-        SiteCall lastCall = getLastCall();
-        if (lastCall == null) {
-            return false;
-        }
-        return lastCall.getResult() == NetworkCallResult.FAIL;
+        return siteSettings.getLastResult() == NetworkCallResult.FAIL;
+    }
+
+    /**
+     * @return percent of successful calls in each of {@link org.site_monitor.model.db.DBCallRollup#PERIODS}, null for periods without calls
+     */
+    public Double[] getUptimes() {
+        return uptimes;
+    }
+
+    public void setUptimes(Double[] uptimes) {
+        this.uptimes = uptimes;
     }
 
     public SiteSettings getSiteSettings() {
@@ -230,5 +231,9 @@ public class SiteSettingsBusiness implements Parcelable {
         dest.writeParcelable(siteSettings, flags);
         dest.writeByte(isChecking ? (byte) 1 : (byte) 0);
         dest.writeList(siteCalls);
+        dest.writeInt(uptimes.length);
+        for (Double uptime : uptimes) {
+            dest.writeValue(uptime);
+        }
     }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.bo;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertificateException;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Class of a failed call, set once when call is made.<br/>
+ * Stored as ordinal by calls and packed segments: add values at the end only.
+ */
+public enum CallError {
+    DNS,
+    REFUSED,
+    CONNECT_TIMEOUT,
+    TIMEOUT,
+    RESET,
+    TLS,
+    CERT,
+    HTTP_STATUS,
+    OTHER;
+
+    private static final String CERT_PATH_EXCEPTION = "java.security.cert.CertPathValidatorException";
+    private static final String FAILED_TO_CONNECT_TO = "failed to connect to";
+    private static final String CONNECT_TIMED_OUT = "connect timed out";
+    private static final String RECVFROM_FAILED_ECONNRESET = "recvfrom failed: ECONNRESET";
+    private static final String CONNECTION_RESET = "Connection reset";
+    private static final String BROKEN_PIPE = "Broken pipe";
+    private static final String EPIPE = "EPIPE";
+
+    /**
+     * @param e failure of a call
+     * @return class of failure
+     */
+    public static CallError of(Exception e) {
+        if (e instanceof UnknownHostException) {
+            return DNS;
+        }
+        if (e instanceof SSLException) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof CertificateException || cause instanceof CertPathValidatorException) {
+                    return CERT;
+                }
+            }
+            String message = e.getLocalizedMessage();
+            return message != null && message.startsWith(CERT_PATH_EXCEPTION) ? CERT : TLS;
+        }
+        String message = e.getLocalizedMessage();
+        if (e instanceof SocketTimeoutException) {
+            return message != null && (message.startsWith(FAILED_TO_CONNECT_TO) || message.startsWith(CONNECT_TIMED_OUT)) ? CONNECT_TIMEOUT : TIMEOUT;
+        }
+        if (message != null && (message.startsWith(RECVFROM_FAILED_ECONNRESET) || message.startsWith(CONNECTION_RESET)
+                || message.contains(BROKEN_PIPE) || message.contains(EPIPE))) {
+            return RESET;
+        }
+        if (e instanceof ConnectException || e instanceof NoRouteToHostException) {
+            return REFUSED;
+        }
+        if (e instanceof InterruptedIOException) {
+            return TIMEOUT;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.bo;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Exception message of failed calls, stored once whatever the count of calls having it.
+ */
+@DatabaseTable
+public class CallMessage {
+
+    @DatabaseField(generatedId = true)
+    private Long id;
+    @DatabaseField(canBeNull = false, unique = true)
+    private String message;
+
+    public CallMessage() {
+    }
+
+    public CallMessage(String message) {
+        this.message = message;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
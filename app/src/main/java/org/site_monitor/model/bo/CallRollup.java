@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.bo;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+
+import org.site_monitor.util.LatencySketch;
+
+/**
+ * Summary of the calls of a site in a time bucket, one row per site and bucket.<br/>
+ * Latency figures are of successful calls only.
+ */
+public abstract class CallRollup {
+
+    @DatabaseField(generatedId = true)
+    private Long id;
+    @DatabaseField(foreign = true, canBeNull = false, uniqueCombo = true)
+    private SiteSettings siteSettings;
+    @DatabaseField(canBeNull = false, uniqueCombo = true)
+    private long bucket;
+    @DatabaseField
+    private int count;
+    @DatabaseField
+    private int successCount;
+    @DatabaseField
+    private int failCount;
+    @DatabaseField
+    private Long minResponseTime;
+    @DatabaseField
+    private Long maxResponseTime;
+    @DatabaseField
+    private long sumResponseTime;
+    @DatabaseField(dataType = DataType.BYTE_ARRAY)
+    private byte[] sketch;
+
+    public CallRollup() {
+    }
+
+    public CallRollup(SiteSettings siteSettings, long bucket) {
+        this.siteSettings = siteSettings;
+        this.bucket = bucket;
+    }
+
+    public void add(SiteCall siteCall) {
+        count++;
+        if (siteCall.getResult() == NetworkCallResult.FAIL) {
+            failCount++;
+        }
+        if (siteCall.getResult() != NetworkCallResult.SUCCESS) {
+            return;
+        }
+        successCount++;
+        long responseTime = siteCall.getResponseTime();
+        minResponseTime = minResponseTime == null ? responseTime : Math.min(minResponseTime, responseTime);
+        maxResponseTime = maxResponseTime == null ? responseTime : Math.max(maxResponseTime, responseTime);
+        sumResponseTime += responseTime;
+        LatencySketch latencySketch = getSketch();
+        latencySketch.add(responseTime);
+        sketch = latencySketch.toBytes();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public SiteSettings getSiteSettings() {
+        return siteSettings;
+    }
+
+    /**
+     * @return start time in millis of bucket
+     */
+    public long getBucket() {
+        return bucket;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public Long getMinResponseTime() {
+        return minResponseTime;
+    }
+
+    public Long getMaxResponseTime() {
+        return maxResponseTime;
+    }
+
+    public long getSumResponseTime() {
+        return sumResponseTime;
+    }
+
+    /**
+     * @return sketch of response times, empty for buckets rolled up from history by migration
+     */
+    public LatencySketch getSketch() {
+        return LatencySketch.fromBytes(sketch);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.bo;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import org.site_monitor.util.CallSegmentCodec;
+
+import java.util.List;
+
+/**
+ * Calls of a site in a local day packed in one row, see {@link CallSegmentCodec}.
+ */
+@DatabaseTable
+public class CallSegment {
+
+    @DatabaseField(generatedId = true)
+    private Long id;
+    @DatabaseField(foreign = true, canBeNull = false, uniqueCombo = true)
+    private SiteSettings siteSettings;
+    @DatabaseField(canBeNull = false, uniqueCombo = true)
+    private long day;
+    @DatabaseField
+    private int count;
+    @DatabaseField(dataType = DataType.BYTE_ARRAY, canBeNull = false)
+    private byte[] data;
+
+    public CallSegment() {
+    }
+
+    public CallSegment(SiteSettings siteSettings, long day) {
+        this.siteSettings = siteSettings;
+        this.day = day;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public SiteSettings getSiteSettings() {
+        return siteSettings;
+    }
+
+    /**
+     * @return start time in millis of day
+     */
+    public long getDay() {
+        return day;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return reader of calls of day, decoded one at a time
+     */
+    public CallSegmentCodec.Reader calls() {
+        return CallSegmentCodec.read(data);
+    }
+
+    public void setCalls(List<SiteCall> siteCalls) {
+        this.data = CallSegmentCodec.encode(siteCalls);
+        this.count = siteCalls.size();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.bo;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import java.util.Date;
+
+/**
+ * Period a site fails, from its first failed call to its first successful call after it.<br/>
+ * Opened, extended and closed as calls are written, calls without connectivity leave it as it is.
+ */
+@DatabaseTable
+public class Incident {
+
+    @DatabaseField(generatedId = true)
+    private Long id;
+    @DatabaseField(foreign = true, canBeNull = false)
+    private SiteSettings siteSettings;
+    @DatabaseField(canBeNull = false, dataType = DataType.DATE_LONG)
+    private Date startDate;
+    @DatabaseField(dataType = DataType.DATE_LONG)
+    private Date endDate;
+    @DatabaseField
+    private int failCount;
+    @DatabaseField(dataType = DataType.ENUM_INTEGER)
+    private CallError error;
+
+    public Incident() {
+    }
+
+    /**
+     * @param siteCall first failed call
+     */
+    public Incident(SiteSettings siteSettings, SiteCall siteCall) {
+        this.siteSettings = siteSettings;
+        this.startDate = siteCall.getDate();
+        this.failCount = 1;
+        this.error = siteCall.getError();
+    }
+
+    public void onFail() {
+        failCount++;
+    }
+
+    /**
+     * @param date of first successful call
+     */
+    public void close(Date date) {
+        endDate = date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public SiteSettings getSiteSettings() {
+        return siteSettings;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @return date of first successful call, null while site fails
+     */
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public boolean isOpen() {
+        return endDate == null;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    /**
+     * @return class of failure of first failed call
+     */
+    public CallError getError() {
+        return error;
+    }
+}
@@ -16,7 +16,8 @@
 package org.site_monitor.model.bo;
 
 /**
- * Created by Martin Norbert on 14/07/2015.
+ * Created by Martin Norbert on 14/07/2015.<br/>
+ * Stored as ordinal by calls and packed segments: add values at the end only.
  */
 public enum NetworkCallResult {
     FAIL,
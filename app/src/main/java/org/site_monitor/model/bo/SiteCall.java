@@ -19,6 +19,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.google.gson.annotations.Expose;
+import com.j256.ormlite.field.DataType;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.table.DatabaseTable;
 
@@ -59,10 +60,10 @@ public class SiteCall implements Parcelable {
     @DatabaseField(generatedId = true)
     private Long id;
     @Expose
-    @DatabaseField(canBeNull = false)
+    @DatabaseField(canBeNull = false, dataType = DataType.DATE_LONG)
     private Date date;
     @Expose
-    @DatabaseField(canBeNull = false)
+    @DatabaseField(canBeNull = false, dataType = DataType.ENUM_INTEGER)
     private NetworkCallResult result;
     @Expose
     @DatabaseField
@@ -70,9 +71,47 @@ public class SiteCall implements Parcelable {
     @Expose
     @DatabaseField(canBeNull = false)
     private Long responseTime;
+    // kept in message dictionary, see messageId
     @Expose
-    @DatabaseField
     private String exception;
+    @Expose
+    @DatabaseField(dataType = DataType.ENUM_INTEGER)
+    private CallError error;
+    @DatabaseField
+    private Long messageId;
+    @Expose
+    @DatabaseField
+    private Boolean connectionReused;
+    @Expose
+    @DatabaseField
+    private Long dnsTime;
+    @Expose
+    @DatabaseField
+    private Long connectTime;
+    @Expose
+    @DatabaseField
+    private Long handshakeTime;
+    @Expose
+    @DatabaseField
+    private Long ttfbTime;
+    @Expose
+    @DatabaseField
+    private CallRoute route;
+    @Expose
+    @DatabaseField
+    private Long hostTime;
+    @Expose
+    @DatabaseField
+    private Long internalTime;
+    @Expose
+    @DatabaseField
+    private Integer attempts;
+    @Expose
+    @DatabaseField
+    private Long retryTime;
+    @Expose
+    @DatabaseField
+    private Integer skippedCycles;
     @DatabaseField(foreign = true, canBeNull = false)
     private SiteSettings siteSettings;
 
@@ -85,6 +124,9 @@ public class SiteCall implements Parcelable {
 
     public SiteCall(Date date, NetworkCallResult callResult, Long responseTime, int responseCode) {
         this(date, callResult, responseCode, responseTime, null);
+        if (callResult == NetworkCallResult.FAIL) {
+            this.error = CallError.HTTP_STATUS;
+        }
     }
 
     public SiteCall(Date date, NetworkCallResult callResult, Long responseTime, Exception e) {
@@ -100,6 +142,7 @@ public class SiteCall implements Parcelable {
             if (exception == null && e instanceof SocketTimeoutException) {
                 this.exception = "timeout";
             }
+            this.error = CallError.of(e);
         }
         this.responseTime = responseTime;
     }
@@ -110,6 +153,8 @@ public class SiteCall implements Parcelable {
         result = NetworkCallResult.values()[in.readInt()];
         responseCode = (Integer) in.readValue(Integer.class.getClassLoader());
         exception = in.readString();
+        Integer errorOrdinal = (Integer) in.readValue(Integer.class.getClassLoader());
+        error = errorOrdinal == null ? null : CallError.values()[errorOrdinal];
     }
 
     public Integer getResponseCode() {
@@ -120,6 +165,32 @@ public class SiteCall implements Parcelable {
         return exception;
     }
 
+    public void setException(String exception) {
+        this.exception = exception;
+    }
+
+    /**
+     * @return class of failure, null if call did not fail or failed before classes were stored
+     */
+    public CallError getError() {
+        return error;
+    }
+
+    public void setError(CallError error) {
+        this.error = error;
+    }
+
+    /**
+     * @return id of exception in message dictionary, null if none
+     */
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
     public Date getDate() {
         return date;
     }
@@ -132,6 +203,128 @@ public class SiteCall implements Parcelable {
         return responseTime;
     }
 
+    /**
+     * @return true if call went only through kept-alive connections (no handshake in response time), false if a connection was opened, null if unknown
+     */
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    public void setConnectionReused(Boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    /**
+     * @return resolver time in millis of address used, null if unknown or not done (reused connection).
+     * Not included in response time when host was resolved at cycle start.
+     */
+    public Long getDnsTime() {
+        return dnsTime;
+    }
+
+    public void setDnsTime(Long dnsTime) {
+        this.dnsTime = dnsTime;
+    }
+
+    /**
+     * @return TCP connect time in millis included in response time, null if unknown or not done (reused connection)
+     */
+    public Long getConnectTime() {
+        return connectTime;
+    }
+
+    public void setConnectTime(Long connectTime) {
+        this.connectTime = connectTime;
+    }
+
+    /**
+     * @return TLS handshake time in millis included in response time, null if no handshake was done (http or reused connection)
+     */
+    public Long getHandshakeTime() {
+        return handshakeTime;
+    }
+
+    public void setHandshakeTime(Long handshakeTime) {
+        this.handshakeTime = handshakeTime;
+    }
+
+    /**
+     * @return time in millis from request sent to first response byte included in response time, null if unknown
+     */
+    public Long getTtfbTime() {
+        return ttfbTime;
+    }
+
+    public void setTtfbTime(Long ttfbTime) {
+        this.ttfbTime = ttfbTime;
+    }
+
+    /**
+     * @return route of reported answer, null if unknown
+     */
+    public CallRoute getRoute() {
+        return route;
+    }
+
+    public void setRoute(CallRoute route) {
+        this.route = route;
+    }
+
+    /**
+     * @return time in millis host took to answer or fail, retries included, null if unknown or given up (other route answered first)
+     */
+    public Long getHostTime() {
+        return hostTime;
+    }
+
+    public void setHostTime(Long hostTime) {
+        this.hostTime = hostTime;
+    }
+
+    /**
+     * @return time in millis internal url took to answer or fail, retries included, null if not called, unknown or given up (other route answered first)
+     */
+    public Long getInternalTime() {
+        return internalTime;
+    }
+
+    public void setInternalTime(Long internalTime) {
+        this.internalTime = internalTime;
+    }
+
+    /**
+     * @return count of attempts on route of reported answer, last one included, null if unknown
+     */
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * @return time in millis spent on failed attempts and backoff before attempt of reported answer, not included in response time, null if unknown
+     */
+    public Long getRetryTime() {
+        return retryTime;
+    }
+
+    public void setRetryTime(Long retryTime) {
+        this.retryTime = retryTime;
+    }
+
+    /**
+     * @return count of scheduled cycles that skipped site before this call (circuit open), null if none
+     */
+    public Integer getSkippedCycles() {
+        return skippedCycles;
+    }
+
+    public void setSkippedCycles(Integer skippedCycles) {
+        this.skippedCycles = skippedCycles;
+    }
+
     public Long getId() {
         return id;
     }
@@ -156,6 +349,18 @@ public class SiteCall implements Parcelable {
                 ", responseCode=" + responseCode +
                 ", responseTime=" + responseTime +
                 ", exception='" + exception + '\'' +
+                ", error=" + error +
+                ", connectionReused=" + connectionReused +
+                ", dnsTime=" + dnsTime +
+                ", connectTime=" + connectTime +
+                ", handshakeTime=" + handshakeTime +
+                ", ttfbTime=" + ttfbTime +
+                ", route=" + route +
+                ", hostTime=" + hostTime +
+                ", internalTime=" + internalTime +
+                ", attempts=" + attempts +
+                ", retryTime=" + retryTime +
+                ", skippedCycles=" + skippedCycles +
                 '}';
     }
 
@@ -172,5 +377,6 @@ public class SiteCall implements Parcelable {
         // write int doesn't accept null
         dest.writeValue(responseCode);
         dest.writeString(exception);
+        dest.writeValue(error == null ? null : error.ordinal());
     }
 }
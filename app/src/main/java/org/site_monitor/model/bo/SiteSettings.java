@@ -26,6 +26,8 @@ import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.table.DatabaseTable;
 
+import java.util.Date;
+
 /**
  * Created by Martin Norbert on 11/07/2015.
  */
@@ -45,6 +47,9 @@ public class SiteSettings implements Parcelable {
         }
     };
 
+    // parcel value of a null status field
+    private static final int NONE = -1;
+
     @DatabaseField(generatedId = true)
     private Long id;
     @DatabaseField
@@ -59,7 +64,31 @@ public class SiteSettings implements Parcelable {
     private boolean forcedCertificate = false;
     @DatabaseField(dataType = DataType.BYTE_ARRAY)
     private byte[] favicon;
-    @ForeignCollectionField(eager = true)
+    @DatabaseField
+    private Integer timeout;
+    @DatabaseField
+    private Integer maxAttempts;
+    @DatabaseField
+    private Integer retentionDays;
+    @DatabaseField
+    private CircuitState circuitState;
+    @DatabaseField
+    private int consecutiveFailures;
+    @DatabaseField
+    private int circuitOpenings;
+    @DatabaseField
+    private Long circuitRetryAt;
+    @DatabaseField
+    private int skippedCycles;
+    @DatabaseField
+    private NetworkCallResult lastResult;
+    @DatabaseField
+    private Date lastCallDate;
+    @DatabaseField
+    private Long lastResponseTime;
+    @DatabaseField
+    private Date streakStart;
+    @ForeignCollectionField(eager = false)
     private ForeignCollection<SiteCall> siteCalls;
 
 
@@ -76,9 +105,20 @@ public class SiteSettings implements Parcelable {
         host = in.readString();
         internalUrl = in.readString();
         isNotificationEnabled = in.readInt() == 1;
+        int lastResultOrdinal = in.readInt();
+        lastResult = lastResultOrdinal == NONE ? null : NetworkCallResult.values()[lastResultOrdinal];
+        lastCallDate = readDate(in);
+        long lastResponseTimeValue = in.readLong();
+        lastResponseTime = lastResponseTimeValue == NONE ? null : lastResponseTimeValue;
+        streakStart = readDate(in);
         in.readByteArray(favicon);
     }
 
+    private static Date readDate(Parcel in) {
+        long time = in.readLong();
+        return time == NONE ? null : new Date(time);
+    }
+
     public String getHost() {
         return host;
     }
@@ -107,6 +147,9 @@ public class SiteSettings implements Parcelable {
         this.id = id;
     }
 
+    /**
+     * Lazy collection, each iteration queries all calls of site: use {@link org.site_monitor.model.db.DBSiteCall} queries instead.
+     */
     public ForeignCollection<SiteCall> getSiteCalls() {
         return siteCalls;
     }
@@ -139,6 +182,134 @@ public class SiteSettings implements Parcelable {
         this.internalUrl = internalUrl;
     }
 
+    /**
+     * @return connect and read timeout in millis set by user, null to adapt it to site response times
+     */
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return max attempts of a call set by user, null to use retry preferences
+     */
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return days calls of site are kept set by user, null to use default retention
+     */
+    public Integer getRetentionDays() {
+        return retentionDays;
+    }
+
+    public void setRetentionDays(Integer retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * @return circuit breaker state of site, closed if never set
+     */
+    public CircuitState getCircuitState() {
+        return circuitState == null ? CircuitState.CLOSED : circuitState;
+    }
+
+    public void setCircuitState(CircuitState circuitState) {
+        this.circuitState = circuitState;
+    }
+
+    /**
+     * @return count of failed calls since last success
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /**
+     * @return count of times circuit opened since last success, doubles wait of each opening
+     */
+    public int getCircuitOpenings() {
+        return circuitOpenings;
+    }
+
+    public void setCircuitOpenings(int circuitOpenings) {
+        this.circuitOpenings = circuitOpenings;
+    }
+
+    /**
+     * @return time in millis from which an open circuit lets a call through, null if not open
+     */
+    public Long getCircuitRetryAt() {
+        return circuitRetryAt;
+    }
+
+    public void setCircuitRetryAt(Long circuitRetryAt) {
+        this.circuitRetryAt = circuitRetryAt;
+    }
+
+    /**
+     * @return count of cycles that skipped site since its last call
+     */
+    public int getSkippedCycles() {
+        return skippedCycles;
+    }
+
+    public void setSkippedCycles(int skippedCycles) {
+        this.skippedCycles = skippedCycles;
+    }
+
+    /**
+     * Updates current status of site with a new call, a call older than last one is ignored.<br/>
+     * Consecutive failures are kept by {@link org.site_monitor.util.CircuitBreaker}.
+     *
+     * @param siteCall call of site
+     */
+    public void updateStatus(SiteCall siteCall) {
+        if (lastCallDate != null && siteCall.getDate().before(lastCallDate)) {
+            return;
+        }
+        if (siteCall.getResult() != lastResult) {
+            streakStart = siteCall.getDate();
+        }
+        lastResult = siteCall.getResult();
+        lastCallDate = siteCall.getDate();
+        lastResponseTime = siteCall.getResponseTime();
+    }
+
+    /**
+     * @return result of last call, null if never called
+     */
+    public NetworkCallResult getLastResult() {
+        return lastResult;
+    }
+
+    public Date getLastCallDate() {
+        return lastCallDate;
+    }
+
+    public Long getLastResponseTime() {
+        return lastResponseTime;
+    }
+
+    /**
+     * @return date of first call of the streak of calls with last result
+     */
+    public Date getStreakStart() {
+        return streakStart;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o instanceof SiteSettings obj) {
@@ -160,7 +331,6 @@ public class SiteSettings implements Parcelable {
                 ", host='" + host + '\'' +
                 ", internalUrl='" + internalUrl + '\'' +
                 ", isNotificationEnabled=" + isNotificationEnabled +
-                ", calls=" + (siteCalls == null ? "0" : siteCalls.size()) +
                 '}';
     }
 
@@ -176,6 +346,10 @@ public class SiteSettings implements Parcelable {
         dest.writeString(host);
         dest.writeString(internalUrl);
         dest.writeInt(isNotificationEnabled ? 1 : 0);
+        dest.writeInt(lastResult == null ? NONE : lastResult.ordinal());
+        dest.writeLong(lastCallDate == null ? NONE : lastCallDate.getTime());
+        dest.writeLong(lastResponseTime == null ? NONE : lastResponseTime);
+        dest.writeLong(streakStart == null ? NONE : streakStart.getTime());
         if (favicon != null) {
             dest.writeByteArray(favicon);
         }
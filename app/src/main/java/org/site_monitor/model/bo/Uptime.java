@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.bo;
+
+/**
+ * Successful and failed calls of a period, summed from rollups. Calls without connectivity count neither way.
+ */
+public class Uptime {
+
+    private long successCount;
+    private long failCount;
+
+    public Uptime() {
+    }
+
+    public Uptime(long successCount, long failCount) {
+        this.successCount = successCount;
+        this.failCount = failCount;
+    }
+
+    public void add(long successCount, long failCount) {
+        this.successCount += successCount;
+        this.failCount += failCount;
+    }
+
+    public void add(Uptime uptime) {
+        add(uptime.successCount, uptime.failCount);
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getFailCount() {
+        return failCount;
+    }
+
+    /**
+     * @return percent of successful calls, null if none succeeded nor failed
+     */
+    public Double getPercent() {
+        long count = successCount + failCount;
+        return count == 0 ? null : 100d * successCount / count;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.util.CallSegmentCodec;
+import org.site_monitor.util.TimeUtil;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Debug benchmarks of call table, run on a scratch database filled with {@link #ROWS} calls of {@link #SITES} sites
+ * checked every {@link #INTERVAL}, stored as ORMLite does: dates as epoch millis and results as ordinals,
+ * or as strings like before database version 14.<br/>
+ * Long running: call it out of main thread.
+ */
+public class DBBenchmark {
+
+    public static final int SITES = 200;
+    public static final int ROWS = 1000000;
+    public static final long INTERVAL = 15 * TimeUtil.MINUTE_2_MILLISEC;
+    private static final String TAG = DBBenchmark.class.getSimpleName();
+    private static final String DATABASE_NAME = "benchmark.db";
+    private static final String ORMLITE_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSSSSS";
+    private static final long DAY = 24 * 60 * TimeUtil.MINUTE_2_MILLISEC;
+    private static final String CREATE_SITE_SETTINGS = "CREATE TABLE `sitesettings` (`id` INTEGER PRIMARY KEY AUTOINCREMENT);";
+    private static final String CREATE_SITE_CALL = "CREATE TABLE `sitecall` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` BIGINT NOT NULL, "
+            + "`result` INTEGER NOT NULL, `responseCode` INTEGER, `responseTime` BIGINT NOT NULL, `exception` VARCHAR, `siteSettings_id` BIGINT NOT NULL);";
+    private static final String CREATE_SITE_CALL_V13 = "CREATE TABLE `sitecall` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` VARCHAR NOT NULL, "
+            + "`result` VARCHAR NOT NULL, `responseCode` INTEGER, `responseTime` BIGINT NOT NULL, `exception` VARCHAR, `siteSettings_id` BIGINT NOT NULL);";
+    private static final String INSERT_SITE_CALL = "INSERT INTO `sitecall` (`date`, `result`, `responseCode`, `responseTime`, `exception`, `siteSettings_id`) VALUES (?, ?, ?, ?, ?, ?);";
+    private static final String LAST_CALL = "SELECT * FROM `sitecall` WHERE `siteSettings_id` = ? ORDER BY `date` DESC LIMIT 1;";
+    private static final String PURGE_BY_DATE = "DELETE FROM `sitecall` WHERE `date` < ?;";
+    /**
+     * Same rows as {@link #PURGE_BY_DATE}, calls of removed sites aside. Site and date index can't serve a bound on date alone, its first column is site:
+     * without site bound the plan is SCAN sitecall, with index or not. Bounded by ids of sites, plan becomes
+     * SEARCH sitecall USING INDEX sitecall_site_date_idx (siteSettings_id=? AND date&lt;?) for each site.<br/>
+     * Desktop SQLite 3.40, 1M calls of 200 sites, one day purged: by date 82 ms, by existing sites 16 ms with index (121 ms without).
+     */
+    private static final String PURGE_BY_SITE_AND_DATE = "DELETE FROM `sitecall` WHERE `siteSettings_id` IN (SELECT `id` FROM `sitesettings`) AND `date` < ?;";
+    // as retention does, site by site
+    private static final String PURGE_OF_SITE = "DELETE FROM `sitecall` WHERE `siteSettings_id` = ? AND `date` < ?;";
+    private static final String[] PURGES = {PURGE_BY_DATE, PURGE_BY_SITE_AND_DATE, PURGE_OF_SITE};
+    private static final String[] PURGE_NAMES = {"by date", "by existing sites", "site by site"};
+    private static final String EXPLAIN = "EXPLAIN QUERY PLAN ";
+    // detail column of query plan rows
+    private static final int PLAN_DETAIL = 3;
+    private static final String CREATE_CALL_SEGMENT = "CREATE TABLE `callsegment` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `siteSettings_id` BIGINT NOT NULL, "
+            + "`day` BIGINT NOT NULL, `count` INTEGER, `data` BLOB NOT NULL, UNIQUE (`siteSettings_id`, `day`));";
+    private static final String INSERT_CALL_SEGMENT = "INSERT INTO `callsegment` (`siteSettings_id`, `day`, `count`, `data`) VALUES (?, ?, ?, ?);";
+    private static final String CALLS_OF_SITE = "SELECT `date`, `result`, `responseCode`, `responseTime`, `exception` FROM `sitecall` WHERE `siteSettings_id` = ? ORDER BY `date`;";
+    private static final String SEGMENTS_OF_SITE = "SELECT `data` FROM `callsegment` WHERE `siteSettings_id` = ? ORDER BY `day`;";
+    // one call in FAIL_EVERY fails, with a message
+    private static final int FAIL_EVERY = 97;
+    private static final NetworkCallResult[] RESULTS = NetworkCallResult.values();
+
+    private DBBenchmark() {
+    }
+
+    /**
+     * Times last call lookup of every site and purge of a day of calls, without site and date index then with it.<br/>
+     * Each purge statement runs on both, rolled back so that every one removes the same day, and is reported with its query plan.
+     *
+     * @return report of timings
+     */
+    public static String siteDateIndex(Context context) {
+        StringBuilder sb = new StringBuilder("site/date index, ").append(ROWS).append(" calls of ").append(SITES).append(" sites\n");
+        for (boolean indexed : new boolean[]{false, true}) {
+            SQLiteDatabase db = open(context, true);
+            try {
+                long start = fill(db, true);
+                if (indexed) {
+                    db.execSQL(DBSiteCall.CREATE_SITE_DATE_INDEX);
+                }
+                long lastCallsTime = timeLastCalls(db);
+                sb.append(indexed ? "with index" : "without index")
+                        .append(": last call of each site ").append(lastCallsTime).append(" ms\n");
+                for (int i = 0; i < PURGES.length; i++) {
+                    // a daily purge removes the oldest day
+                    db.beginTransaction();
+                    try {
+                        long purgeTime = PURGES[i] == PURGE_OF_SITE ? timeSiteDeletes(db, start + DAY) : timeDelete(db, PURGES[i], true, start + DAY);
+                        sb.append("  purge of a day ").append(PURGE_NAMES[i]).append(' ').append(purgeTime).append(" ms: ")
+                                .append(plan(db, PURGES[i])).append('\n');
+                    } finally {
+                        db.endTransaction();
+                    }
+                }
+            } finally {
+                close(context, db);
+            }
+        }
+        Log.i(TAG, sb.toString());
+        return sb.toString();
+    }
+
+    /**
+     * Compares size and full read of history stored as call rows, then packed as daily segments.
+     *
+     * @return report of sizes and timings
+     */
+    public static String packedSegments(Context context) {
+        StringBuilder sb = new StringBuilder("packed segments, ").append(ROWS).append(" calls of ").append(SITES).append(" sites\n");
+        SQLiteDatabase db = open(context, true);
+        try {
+            fill(db, true);
+            long rowsSize = size(db);
+            long start = SystemClock.elapsedRealtime();
+            int rowsRead = 0;
+            for (int site = 1; site <= SITES; site++) {
+                rowsRead += readCalls(db, site, true).size();
+            }
+            long rowsReadTime = SystemClock.elapsedRealtime() - start;
+
+            start = SystemClock.elapsedRealtime();
+            db.execSQL(CREATE_CALL_SEGMENT);
+            db.beginTransaction();
+            try {
+                SQLiteStatement insert = db.compileStatement(INSERT_CALL_SEGMENT);
+                for (int site = 1; site <= SITES; site++) {
+                    packCalls(insert, site, readCalls(db, site, true));
+                }
+                insert.close();
+                db.execSQL("DELETE FROM `sitecall`;");
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long packTime = SystemClock.elapsedRealtime() - start;
+            db.execSQL("VACUUM;");
+            long segmentsSize = size(db);
+
+            start = SystemClock.elapsedRealtime();
+            int segmentsRead = 0;
+            for (int site = 1; site <= SITES; site++) {
+                Cursor cursor = db.rawQuery(SEGMENTS_OF_SITE, new String[]{String.valueOf(site)});
+                while (cursor.moveToNext()) {
+                    CallSegmentCodec.Reader reader = CallSegmentCodec.read(cursor.getBlob(0));
+                    while (reader.hasNext()) {
+                        reader.next();
+                        segmentsRead++;
+                    }
+                }
+                cursor.close();
+            }
+            long segmentsReadTime = SystemClock.elapsedRealtime() - start;
+            sb.append("rows: ").append(rowsSize / 1024).append(" KB, read of ").append(rowsRead).append(" calls ").append(rowsReadTime).append(" ms\n")
+                    .append("segments: ").append(segmentsSize / 1024).append(" KB, read of ").append(segmentsRead).append(" calls ").append(segmentsReadTime).append(" ms")
+                    .append(", packed in ").append(packTime).append(" ms\n");
+        } finally {
+            close(context, db);
+        }
+        Log.i(TAG, sb.toString());
+        return sb.toString();
+    }
+
+    /**
+     * Times write of calls, read of calls of every site and purge of a day of calls, indexed,
+     * dates and results stored as strings then as integers.
+     *
+     * @return report of sizes and timings
+     */
+    public static String integerColumns(Context context) {
+        StringBuilder sb = new StringBuilder("integer columns, ").append(ROWS).append(" calls of ").append(SITES).append(" sites\n");
+        for (boolean integers : new boolean[]{false, true}) {
+            SQLiteDatabase db = open(context, integers);
+            try {
+                db.execSQL(DBSiteCall.CREATE_SITE_DATE_INDEX);
+                long start = SystemClock.elapsedRealtime();
+                long first = fill(db, integers);
+                long writeTime = SystemClock.elapsedRealtime() - start;
+                long dbSize = size(db);
+
+                start = SystemClock.elapsedRealtime();
+                int read = 0;
+                for (int site = 1; site <= SITES; site++) {
+                    read += readCalls(db, site, integers).size();
+                }
+                long readTime = SystemClock.elapsedRealtime() - start;
+                long purgeTime = timeDelete(db, PURGE_BY_SITE_AND_DATE, integers, first + DAY);
+                sb.append(integers ? "integers" : "strings").append(": ").append(dbSize / 1024).append(" KB")
+                        .append(", write ").append(writeTime).append(" ms")
+                        .append(", read of ").append(read).append(" calls ").append(readTime).append(" ms")
+                        .append(", purge of a day ").append(purgeTime).append(" ms\n");
+            } finally {
+                close(context, db);
+            }
+        }
+        Log.i(TAG, sb.toString());
+        return sb.toString();
+    }
+
+    /**
+     * @param integers dates and results as integers, else as strings
+     */
+    private static SQLiteDatabase open(Context context, boolean integers) {
+        context.deleteDatabase(DATABASE_NAME);
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DATABASE_NAME), null);
+        db.execSQL(CREATE_SITE_SETTINGS);
+        db.execSQL(integers ? CREATE_SITE_CALL : CREATE_SITE_CALL_V13);
+        return db;
+    }
+
+    private static void close(Context context, SQLiteDatabase db) {
+        db.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * @return date of first call
+     */
+    private static long fill(SQLiteDatabase db, boolean integers) {
+        long start = System.currentTimeMillis() - (long) (ROWS / SITES) * INTERVAL;
+        db.beginTransaction();
+        try {
+            for (int site = 1; site <= SITES; site++) {
+                db.execSQL("INSERT INTO `sitesettings` (`id`) VALUES (" + site + ");");
+            }
+            SQLiteStatement insert = db.compileStatement(INSERT_SITE_CALL);
+            SimpleDateFormat dateFormat = new SimpleDateFormat(ORMLITE_DATE_FORMAT, Locale.US);
+            for (int row = 0; row < ROWS; row++) {
+                // all sites are checked at once
+                long date = start + (row / SITES) * INTERVAL;
+                NetworkCallResult result = row % FAIL_EVERY == 0 ? NetworkCallResult.FAIL : NetworkCallResult.SUCCESS;
+                if (integers) {
+                    insert.bindLong(1, date);
+                    insert.bindLong(2, result.ordinal());
+                } else {
+                    insert.bindString(1, dateFormat.format(new Date(date)));
+                    insert.bindString(2, result.name());
+                }
+                if (result == NetworkCallResult.FAIL) {
+                    insert.bindNull(3);
+                    insert.bindLong(4, 10000);
+                    insert.bindString(5, "timeout");
+                } else {
+                    insert.bindLong(3, 200);
+                    insert.bindLong(4, 100 + row % 400);
+                    insert.bindNull(5);
+                }
+                insert.bindLong(6, 1 + row % SITES);
+                insert.executeInsert();
+            }
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return start;
+    }
+
+    private static long size(SQLiteDatabase db) {
+        Cursor pageCount = db.rawQuery("PRAGMA page_count;", null);
+        Cursor pageSize = db.rawQuery("PRAGMA page_size;", null);
+        try {
+            pageCount.moveToFirst();
+            pageSize.moveToFirst();
+            return pageCount.getLong(0) * pageSize.getLong(0);
+        } finally {
+            pageCount.close();
+            pageSize.close();
+        }
+    }
+
+    /**
+     * @return calls of site by date, read as ORMLite does
+     */
+    private static List<SiteCall> readCalls(SQLiteDatabase db, int site, boolean integers) {
+        List<SiteCall> siteCalls = new ArrayList<>();
+        SimpleDateFormat dateFormat = new SimpleDateFormat(ORMLITE_DATE_FORMAT, Locale.US);
+        Cursor cursor = db.rawQuery(CALLS_OF_SITE, new String[]{String.valueOf(site)});
+        try {
+            while (cursor.moveToNext()) {
+                Date date = integers ? new Date(cursor.getLong(0)) : dateFormat.parse(cursor.getString(0));
+                NetworkCallResult result = integers ? RESULTS[cursor.getInt(1)] : NetworkCallResult.valueOf(cursor.getString(1));
+                SiteCall siteCall = new SiteCall(date, result, cursor.isNull(2) ? null : cursor.getInt(2), cursor.getLong(3), null);
+                if (!cursor.isNull(4)) {
+                    siteCall.setException(cursor.getString(4));
+                }
+                siteCalls.add(siteCall);
+            }
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            cursor.close();
+        }
+        return siteCalls;
+    }
+
+    private static void packCalls(SQLiteStatement insert, int site, List<SiteCall> siteCalls) {
+        int from = 0;
+        while (from < siteCalls.size()) {
+            long day = DBCallRollup.dayOf(siteCalls.get(from).getDate());
+            int to = from;
+            while (to < siteCalls.size() && DBCallRollup.dayOf(siteCalls.get(to).getDate()) == day) {
+                to++;
+            }
+            insert.bindLong(1, site);
+            insert.bindLong(2, day);
+            insert.bindLong(3, to - from);
+            insert.bindBlob(4, CallSegmentCodec.encode(siteCalls.subList(from, to)));
+            insert.executeInsert();
+            from = to;
+        }
+    }
+
+    private static long timeLastCalls(SQLiteDatabase db) {
+        long start = SystemClock.elapsedRealtime();
+        for (int site = 1; site <= SITES; site++) {
+            Cursor cursor = db.rawQuery(LAST_CALL, new String[]{String.valueOf(site)});
+            cursor.moveToFirst();
+            cursor.close();
+        }
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    private static long timeSiteDeletes(SQLiteDatabase db, long date) {
+        long start = SystemClock.elapsedRealtime();
+        SQLiteStatement delete = db.compileStatement(PURGE_OF_SITE);
+        for (int site = 1; site <= SITES; site++) {
+            delete.bindLong(1, site);
+            delete.bindLong(2, date);
+            delete.executeUpdateDelete();
+        }
+        delete.close();
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * @return details of query plan of statement, parameters bound to 0
+     */
+    private static String plan(SQLiteDatabase db, String sql) {
+        int parameters = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                parameters++;
+            }
+        }
+        String[] args = new String[parameters];
+        for (int i = 0; i < parameters; i++) {
+            args[i] = "0";
+        }
+        StringBuilder sb = new StringBuilder();
+        Cursor cursor = db.rawQuery(EXPLAIN + sql, args);
+        try {
+            while (cursor.moveToNext()) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(cursor.getString(PLAN_DETAIL));
+            }
+        } finally {
+            cursor.close();
+        }
+        return sb.toString();
+    }
+
+    private static long timeDelete(SQLiteDatabase db, String sql, boolean integers, long date) {
+        long start = SystemClock.elapsedRealtime();
+        SQLiteStatement delete = db.compileStatement(sql);
+        if (integers) {
+            delete.bindLong(1, date);
+        } else {
+            delete.bindString(1, new SimpleDateFormat(ORMLITE_DATE_FORMAT, Locale.US).format(new Date(date)));
+        }
+        delete.executeUpdateDelete();
+        delete.close();
+        return SystemClock.elapsedRealtime() - start;
+    }
+}
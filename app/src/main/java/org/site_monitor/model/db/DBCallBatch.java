@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.db;
+
+import android.util.Log;
+
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.util.CircuitBreaker;
+import org.site_monitor.util.TimeUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Write path of a check cycle: buffers calls, then writes them in one transaction with status and circuit of their sites,
+ * rollups of their hour and day and incidents of their sites.<br/>
+ * Status and circuit are computed in the transaction from the row of the site, never from the copy of the site held by the check.<br/>
+ * Flushes when {@link #maxSize} calls are buffered, {@link #maxDelay} after first buffered call, and on {@link #close()}.
+ * Writes run on {@link DBWriter} thread, checks adding calls never wait on them.
+ * Thread safe, calls may be added by concurrent checks.
+ */
+public class DBCallBatch {
+
+    public static final int DEFAULT_MAX_SIZE = 50;
+    public static final long DEFAULT_MAX_DELAY = 2 * TimeUtil.SEC_2_MILLISEC;
+    private static final String TAG = DBCallBatch.class.getSimpleName();
+
+    private final DBWriter writer;
+    private final DBSiteCall dbSiteCall;
+    private final DBSiteSettings dbSiteSettings;
+    private final DBCallRollup dbCallRollup;
+    private final DBIncident dbIncident;
+    private final int maxSize;
+    private final long maxDelay;
+    private final Listener listener;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            write(drain());
+        }
+    };
+    private final List<SiteCall> siteCalls = new ArrayList<>();
+
+    public DBCallBatch(DBWriter writer, DBSiteCall dbSiteCall, DBSiteSettings dbSiteSettings, DBCallRollup dbCallRollup, DBIncident dbIncident, Listener listener) {
+        this(writer, dbSiteCall, dbSiteSettings, dbCallRollup, dbIncident, DEFAULT_MAX_SIZE, DEFAULT_MAX_DELAY, listener);
+    }
+
+    /**
+     * @param maxSize  count of buffered calls that triggers a flush
+     * @param maxDelay max time in millis a call stays buffered
+     * @param listener notified after each flush, on writer thread, may be null
+     */
+    public DBCallBatch(DBWriter writer, DBSiteCall dbSiteCall, DBSiteSettings dbSiteSettings, DBCallRollup dbCallRollup, DBIncident dbIncident,
+                       int maxSize, long maxDelay, Listener listener) {
+        this.writer = writer;
+        this.dbSiteCall = dbSiteCall;
+        this.dbSiteSettings = dbSiteSettings;
+        this.dbCallRollup = dbCallRollup;
+        this.dbIncident = dbIncident;
+        this.maxSize = maxSize;
+        this.maxDelay = maxDelay;
+        this.listener = listener;
+    }
+
+    /**
+     * @param siteCall call to create, with its site
+     */
+    public synchronized void add(SiteCall siteCall) {
+        siteCalls.add(siteCall);
+        // a flush queued at max size writes calls added until it runs
+        if (siteCalls.size() == maxSize) {
+            writer.execute(flushTask);
+        } else if (siteCalls.size() == 1) {
+            writer.schedule(flushTask, maxDelay);
+        }
+    }
+
+    /**
+     * Writes buffered calls in one transaction and waits for it.
+     */
+    public void flush() {
+        try {
+            writer.call(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    flushTask.run();
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            Log.e(TAG, "flush", e);
+        }
+    }
+
+    private synchronized List<SiteCall> drain() {
+        List<SiteCall> toCreate = new ArrayList<>(siteCalls);
+        siteCalls.clear();
+        return toCreate;
+    }
+
+    private void write(final List<SiteCall> toCreate) {
+        if (toCreate.isEmpty()) {
+            return;
+        }
+        try {
+            dbSiteCall.callBatchTasks(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (SiteCall siteCall : toCreate) {
+                        // row may have changed since check read it: other cycles, edits of user
+                        SiteSettings siteSettings = dbSiteSettings.findForId(siteCall.getSiteSettings().getId());
+                        if (siteSettings == null) {
+                            // site removed since its check: its calls, rollups and incidents would never be purged
+                            continue;
+                        }
+                        siteSettings.updateStatus(siteCall);
+                        CircuitBreaker.onCallEnd(siteSettings, siteCall, siteCall.getDate().getTime());
+                        dbSiteSettings.updateStatus(siteSettings);
+                        dbSiteCall.create(siteCall);
+                        dbCallRollup.add(siteCall);
+                        dbIncident.onCall(siteCall);
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException e) {
+            Log.e(TAG, "flush of " + toCreate.size() + " calls", e);
+            return;
+        }
+        if (listener != null) {
+            listener.onFlush(toCreate);
+        }
+    }
+
+    /**
+     * Flushes buffered calls, batch must not be used anymore.<br/>
+     * A flush still scheduled by writer finds no call to write.
+     */
+    public void close() {
+        flush();
+    }
+
+    public interface Listener {
+        /**
+         * @param siteCalls calls written
+         */
+        void onFlush(List<SiteCall> siteCalls);
+    }
+}
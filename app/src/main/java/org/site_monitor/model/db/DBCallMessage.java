@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.db;
+
+import com.j256.ormlite.dao.Dao;
+
+import org.site_monitor.model.bo.CallMessage;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of exception messages of calls, loaded once and kept in memory by helper.
+ */
+public class DBCallMessage {
+
+    private static final String UNUSED = "DELETE FROM `callmessage` WHERE `id` NOT IN (SELECT `messageId` FROM `sitecall` WHERE `messageId` IS NOT NULL);";
+    private final Dao<CallMessage, Long> dao;
+    private final Map<String, Long> ids = new HashMap<>();
+    private final Map<Long, String> messages = new HashMap<>();
+    private boolean loaded;
+
+    public DBCallMessage(Dao<CallMessage, Long> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @param message exception message, may be null
+     * @return id of message, created if new, null if message is null
+     * @throws SQLException
+     */
+    public synchronized Long idOf(String message) throws SQLException {
+        if (message == null) {
+            return null;
+        }
+        load();
+        Long id = ids.get(message);
+        if (id == null) {
+            CallMessage callMessage = new CallMessage(message);
+            dao.create(callMessage);
+            id = callMessage.getId();
+            put(id, message);
+        }
+        return id;
+    }
+
+    /**
+     * @param id id of message, may be null
+     * @return message, null if id is null or unknown
+     * @throws SQLException
+     */
+    public synchronized String messageOf(Long id) throws SQLException {
+        if (id == null) {
+            return null;
+        }
+        load();
+        return messages.get(id);
+    }
+
+    /**
+     * Forgets loaded messages, to call when a transaction that may have created some is rolled back.
+     */
+    public synchronized void clear() {
+        ids.clear();
+        messages.clear();
+        loaded = false;
+    }
+
+    /**
+     * @return count of messages no call refers to anymore, removed
+     * @throws SQLException
+     */
+    public synchronized int removeUnused() throws SQLException {
+        int removed = dao.executeRaw(UNUSED);
+        clear();
+        return removed;
+    }
+
+    private void load() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        for (CallMessage callMessage : dao.queryForAll()) {
+            put(callMessage.getId(), callMessage.getMessage());
+        }
+        loaded = true;
+    }
+
+    private void put(Long id, String message) {
+        ids.put(message, id);
+        messages.put(id, message);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedDelete;
+
+import org.site_monitor.model.bo.CallRollup;
+import org.site_monitor.model.bo.DailyRollup;
+import org.site_monitor.model.bo.HourlyRollup;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.bo.Uptime;
+import org.site_monitor.util.LatencySketch;
+import org.site_monitor.util.TimeUtil;
+
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hourly and daily rollups of calls, updated with each call created: counters and sketches of a period are summed
+ * from its buckets, whatever the count of calls.
+ */
+public class DBCallRollup {
+
+    private static final String F_SITE_SETTINGS_ID = "siteSettings_id";
+    private static final String F_BUCKET = "bucket";
+    private static final String F_SKETCH = "sketch";
+    private static final String F_SUCCESS_COUNT = "successCount";
+    private static final String F_FAIL_COUNT = "failCount";
+    private static final String HOURLY_TABLE = "hourlyrollup";
+    private static final String DAILY_TABLE = "dailyrollup";
+    private static final String UPTIMES = "SELECT `" + F_SITE_SETTINGS_ID + "`, SUM(`" + F_SUCCESS_COUNT + "`), SUM(`" + F_FAIL_COUNT + "`) FROM `%s` "
+            + "WHERE `" + F_BUCKET + "` >= ? AND `" + F_BUCKET + "` < ? GROUP BY `" + F_SITE_SETTINGS_ID + "`;";
+    /**
+     * Rolling periods of figures shown: 24 hours, 7 days, 30 days.
+     */
+    public static final long[] PERIODS = {TimeUtil.DAY_2_MILLISEC, 7 * TimeUtil.DAY_2_MILLISEC, 30 * TimeUtil.DAY_2_MILLISEC};
+    /**
+     * Longest period read from hourly rollups, daily rollups beyond.
+     */
+    public static final long MAX_HOURLY_PERIOD = 7 * TimeUtil.DAY_2_MILLISEC;
+    private Dao<HourlyRollup, Long> hourlyDao;
+    private Dao<DailyRollup, Long> dailyDao;
+
+    public DBCallRollup(Dao<HourlyRollup, Long> hourlyDao, Dao<DailyRollup, Long> dailyDao) {
+        this.hourlyDao = hourlyDao;
+        this.dailyDao = dailyDao;
+    }
+
+    /**
+     * @return start time in millis of local hour of date
+     */
+    public static long hourOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return start time in millis of local day of date
+     */
+    public static long dayOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static <T extends CallRollup> void add(Dao<T, Long> dao, T newRollup, SiteCall siteCall) throws SQLException {
+        T rollup = dao.queryBuilder().where().eq(F_SITE_SETTINGS_ID, newRollup.getSiteSettings().getId())
+                .and().eq(F_BUCKET, newRollup.getBucket()).queryForFirst();
+        if (rollup == null) {
+            newRollup.add(siteCall);
+            dao.create(newRollup);
+        } else {
+            rollup.add(siteCall);
+            dao.update(rollup);
+        }
+    }
+
+    /**
+     * Adds call to rollups of its hour and day, to run in transaction creating call.
+     *
+     * @param siteCall call with its site
+     * @throws SQLException
+     */
+    public void add(SiteCall siteCall) throws SQLException {
+        SiteSettings siteSettings = siteCall.getSiteSettings();
+        add(hourlyDao, new HourlyRollup(siteSettings, hourOf(siteCall.getDate())), siteCall);
+        add(dailyDao, new DailyRollup(siteSettings, dayOf(siteCall.getDate())), siteCall);
+    }
+
+    /**
+     * Merges sketches of period, raw calls are not read.
+     * Buckets are hours up to {@link #MAX_HOURLY_PERIOD}, days beyond: period is widened to the buckets it overlaps.
+     *
+     * @param from start of period, in millis
+     * @param to   end of period, in millis
+     * @return sketch of response times of successful calls of site in period
+     * @throws SQLException
+     */
+    public LatencySketch findSketch(SiteSettings siteSettings, long from, long to) throws SQLException {
+        List<? extends CallRollup> rollups;
+        if (to - from <= MAX_HOURLY_PERIOD) {
+            rollups = hourlyDao.queryBuilder().selectColumns(F_SKETCH)
+                    .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().ge(F_BUCKET, hourOf(new Date(from))).and().lt(F_BUCKET, to).query();
+        } else {
+            rollups = dailyDao.queryBuilder().selectColumns(F_SKETCH)
+                    .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().ge(F_BUCKET, dayOf(new Date(from))).and().lt(F_BUCKET, to).query();
+        }
+        LatencySketch sketch = new LatencySketch();
+        for (CallRollup rollup : rollups) {
+            sketch.merge(rollup.getSketch());
+        }
+        return sketch;
+    }
+
+    /**
+     * Buckets are hours up to {@link #MAX_HOURLY_PERIOD}, days beyond: period is widened to the buckets it overlaps.
+     *
+     * @param from start of period, in millis
+     * @param to   end of period, in millis
+     * @return successful and failed calls of site in period
+     * @throws SQLException
+     */
+    public Uptime findUptime(SiteSettings siteSettings, long from, long to) throws SQLException {
+        List<? extends CallRollup> rollups;
+        if (to - from <= MAX_HOURLY_PERIOD) {
+            rollups = hourlyDao.queryBuilder().selectColumns(F_SUCCESS_COUNT, F_FAIL_COUNT)
+                    .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().ge(F_BUCKET, hourOf(new Date(from))).and().lt(F_BUCKET, to).query();
+        } else {
+            rollups = dailyDao.queryBuilder().selectColumns(F_SUCCESS_COUNT, F_FAIL_COUNT)
+                    .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().ge(F_BUCKET, dayOf(new Date(from))).and().lt(F_BUCKET, to).query();
+        }
+        Uptime uptime = new Uptime();
+        for (CallRollup rollup : rollups) {
+            uptime.add(rollup.getSuccessCount(), rollup.getFailCount());
+        }
+        return uptime;
+    }
+
+    /**
+     * One query whatever the number of sites, see {@link #findUptime(SiteSettings, long, long)}.
+     *
+     * @return successful and failed calls of each site having calls in period, by site id
+     * @throws SQLException
+     */
+    public Map<Long, Uptime> findUptimes(long from, long to) throws SQLException {
+        List<String[]> rows;
+        if (to - from <= MAX_HOURLY_PERIOD) {
+            rows = hourlyDao.queryRaw(String.format(UPTIMES, HOURLY_TABLE), String.valueOf(hourOf(new Date(from))), String.valueOf(to)).getResults();
+        } else {
+            rows = dailyDao.queryRaw(String.format(UPTIMES, DAILY_TABLE), String.valueOf(dayOf(new Date(from))), String.valueOf(to)).getResults();
+        }
+        Map<Long, Uptime> uptimes = new HashMap<>(rows.size());
+        for (String[] row : rows) {
+            uptimes.put(Long.valueOf(row[0]), new Uptime(Long.parseLong(row[1]), Long.parseLong(row[2])));
+        }
+        return uptimes;
+    }
+
+    public int removeHourlyBefore(Date date) throws SQLException {
+        return hourlyDao.delete((PreparedDelete<HourlyRollup>) hourlyDao.deleteBuilder().where().lt(F_BUCKET, date.getTime()).prepare());
+    }
+
+    public int removeDailyBefore(Date date) throws SQLException {
+        return dailyDao.delete((PreparedDelete<DailyRollup>) dailyDao.deleteBuilder().where().lt(F_BUCKET, date.getTime()).prepare());
+    }
+
+    public int removeRollupsOf(SiteSettings siteSettings) throws SQLException {
+        return hourlyDao.delete((PreparedDelete<HourlyRollup>) hourlyDao.deleteBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).prepare())
+                + dailyDao.delete((PreparedDelete<DailyRollup>) dailyDao.deleteBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).prepare());
+    }
+}
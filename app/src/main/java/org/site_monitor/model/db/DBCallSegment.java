@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.model.db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedDelete;
+import com.j256.ormlite.stmt.Where;
+
+import org.site_monitor.model.bo.CallSegment;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.util.CallSegmentCodec;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Packed days of calls, optional archive of calls older than raw retention.
+ */
+public class DBCallSegment {
+
+    private static final String F_SITE_SETTINGS_ID = "siteSettings_id";
+    private static final String F_DAY = "day";
+    private Dao<CallSegment, Long> dao;
+
+    public DBCallSegment(Dao<CallSegment, Long> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Packs calls of site in a day into its segment, merged with calls already packed for the day. Raw calls are left to caller to remove:
+     * calls already in segment are skipped, so a day packed but not removed yet can be packed again.<br/>
+     * One day of one site per call, to keep write transactions short.
+     *
+     * @param dbSiteCall   calls source
+     * @param siteSettings site of calls
+     * @param day          start in millis of day
+     * @param nextDay      start in millis of next day
+     * @return count of calls packed
+     * @throws SQLException
+     */
+    public int packDay(DBSiteCall dbSiteCall, SiteSettings siteSettings, long day, long nextDay) throws SQLException {
+        List<SiteCall> siteCalls = dbSiteCall.findCallsBetween(siteSettings, new Date(day), new Date(nextDay));
+        if (siteCalls.isEmpty()) {
+            return 0;
+        }
+        CallSegment segment = dao.queryBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().eq(F_DAY, day).queryForFirst();
+        if (segment == null) {
+            segment = new CallSegment(siteSettings, day);
+            segment.setCalls(siteCalls);
+            dao.create(segment);
+            return siteCalls.size();
+        }
+        List<SiteCall> merged = new ArrayList<>(segment.getCount() + siteCalls.size());
+        Set<Long> packedDates = new HashSet<>();
+        CallSegmentCodec.Reader reader = segment.calls();
+        while (reader.hasNext()) {
+            SiteCall packed = reader.next();
+            merged.add(packed);
+            packedDates.add(packed.getDate().getTime());
+        }
+        int count = 0;
+        for (SiteCall siteCall : siteCalls) {
+            if (packedDates.add(siteCall.getDate().getTime())) {
+                merged.add(siteCall);
+                count++;
+            }
+        }
+        if (count > 0) {
+            segment.setCalls(merged);
+            dao.update(segment);
+        }
+        return count;
+    }
+
+    /**
+     * Page of packed history, most recent first, to follow raw calls once they run out.
+     * Reads one segment at a time, from the day of before backwards, until page is full.
+     *
+     * @param siteSettings site of calls
+     * @param before       date in millis of last call of previous page, excluded, null for most recent page
+     * @param limit        max count of calls
+     * @return packed calls of site older than before, most recent first, less than limit on last page
+     * @throws SQLException
+     */
+    public List<SiteCall> findPageBefore(SiteSettings siteSettings, Long before, int limit) throws SQLException {
+        List<SiteCall> page = new ArrayList<>();
+        Long lastDay = null;
+        while (page.size() < limit) {
+            Where<CallSegment, Long> where = dao.queryBuilder().orderBy(F_DAY, false).where();
+            if (lastDay != null) {
+                where.and(where.eq(F_SITE_SETTINGS_ID, siteSettings.getId()), where.lt(F_DAY, lastDay));
+            } else if (before != null) {
+                // segment of day of before starts at or before it
+                where.and(where.eq(F_SITE_SETTINGS_ID, siteSettings.getId()), where.le(F_DAY, before));
+            } else {
+                where.eq(F_SITE_SETTINGS_ID, siteSettings.getId());
+            }
+            CallSegment segment = where.queryForFirst();
+            if (segment == null) {
+                break;
+            }
+            List<SiteCall> dayCalls = new ArrayList<>(segment.getCount());
+            CallSegmentCodec.Reader reader = segment.calls();
+            while (reader.hasNext()) {
+                SiteCall siteCall = reader.next();
+                if (before == null || siteCall.getDate().getTime() < before) {
+                    dayCalls.add(siteCall);
+                }
+            }
+            // segment is oldest first
+            for (int i = dayCalls.size() - 1; i >= 0 && page.size() < limit; i--) {
+                page.add(dayCalls.get(i));
+            }
+            lastDay = segment.getDay();
+        }
+        return page;
+    }
+
+    public int removeSegmentsBefore(Date date) throws SQLException {
+        return dao.delete((PreparedDelete<CallSegment>) dao.deleteBuilder().where().lt(F_DAY, date.getTime()).prepare());
+    }
+
+    public int removeSegmentsOf(SiteSettings siteSettings) throws SQLException {
+        return dao.delete((PreparedDelete<CallSegment>) dao.deleteBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).prepare());
+    }
+}
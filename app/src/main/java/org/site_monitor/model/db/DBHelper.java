@@ -16,19 +16,29 @@
 package org.site_monitor.model.db;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
 import com.j256.ormlite.android.apptools.OpenHelperManager;
 import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.TableUtils;
 
+import org.site_monitor.model.bo.CallError;
+import org.site_monitor.model.bo.CallMessage;
+import org.site_monitor.model.bo.CallSegment;
+import org.site_monitor.model.bo.DailyRollup;
+import org.site_monitor.model.bo.HourlyRollup;
+import org.site_monitor.model.bo.Incident;
+import org.site_monitor.model.bo.NetworkCallResult;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
 
 import java.sql.SQLException;
+import java.util.concurrent.Callable;
 
 /**
  * Created by Martin Norbert on 30/01/2016.
@@ -36,22 +46,82 @@ import java.sql.SQLException;
 public class DBHelper extends OrmLiteSqliteOpenHelper {
 
     private static final String DATABASE_NAME = "sitemonitor.db";
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 17;
     private static final String TAG = DBHelper.class.getSimpleName();
+    private static final String ROLLUP_OF_CALLS = "COUNT(*), SUM(result = 'SUCCESS'), SUM(result = 'FAIL'), "
+            + "MIN(CASE WHEN result = 'SUCCESS' THEN responseTime END), MAX(CASE WHEN result = 'SUCCESS' THEN responseTime END), "
+            + "IFNULL(SUM(CASE WHEN result = 'SUCCESS' THEN responseTime END), 0) FROM `sitecall` GROUP BY 1, 2;";
+    // calls layout of version 14, dates as epoch millis and results as ordinals
+    private static final String CREATE_SITE_CALL_V14 = "CREATE TABLE `sitecall` (`id` INTEGER PRIMARY KEY AUTOINCREMENT, `date` BIGINT NOT NULL, "
+            + "`result` INTEGER NOT NULL, `responseCode` INTEGER, `responseTime` BIGINT NOT NULL, `exception` VARCHAR, `connectionReused` BOOLEAN, "
+            + "`dnsTime` BIGINT, `connectTime` BIGINT, `handshakeTime` BIGINT, `ttfbTime` BIGINT, `route` VARCHAR, `hostTime` BIGINT, "
+            + "`internalTime` BIGINT, `attempts` INTEGER, `retryTime` BIGINT, `skippedCycles` INTEGER, `siteSettings_id` BIGINT NOT NULL);";
+    private static final String SITE_CALL_V14_OTHER_COLUMNS = "responseCode, responseTime, exception, connectionReused, dnsTime, connectTime, "
+            + "handshakeTime, ttfbTime, route, hostTime, internalTime, attempts, retryTime, skippedCycles, siteSettings_id";
+    // classes of failures of version 14 calls, from their messages as Android reports them
+    private static final String ERROR_OF_MESSAGE = "CASE"
+            + " WHEN exception IS NULL THEN " + CallError.HTTP_STATUS.ordinal()
+            + " WHEN exception LIKE 'java.security.cert.CertPathValidatorException%' THEN " + CallError.CERT.ordinal()
+            + " WHEN exception LIKE 'Unable to resolve host%' THEN " + CallError.DNS.ordinal()
+            + " WHEN exception LIKE '%ECONNREFUSED%' OR exception LIKE '%EHOSTUNREACH%' OR exception LIKE '%ENETUNREACH%' THEN " + CallError.REFUSED.ordinal()
+            + " WHEN exception LIKE 'failed to connect to%' OR exception LIKE 'connect timed out%' THEN " + CallError.CONNECT_TIMEOUT.ordinal()
+            + " WHEN exception LIKE 'Connection reset%' OR exception LIKE '%ECONNRESET%' OR exception LIKE '%Broken pipe%' OR exception LIKE '%EPIPE%' THEN " + CallError.RESET.ordinal()
+            + " WHEN exception = 'timeout' OR exception LIKE '%timed out%' THEN " + CallError.TIMEOUT.ordinal()
+            + " WHEN exception LIKE '%SSL%' OR exception LIKE '%handshake%' THEN " + CallError.TLS.ordinal()
+            + " ELSE " + CallError.OTHER.ordinal() + " END";
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    // largest database switched to incremental auto vacuum on open, its full vacuum takes a fraction of a second; larger ones wait for compact()
+    private static final long MAX_AUTO_SWITCH_SIZE = 4 * 1024 * 1024;
+    private static DBHelper helper;
+    private final DBWriter writer = new DBWriter();
+    private DBCallMessage dbCallMessage;
 
     public DBHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // readers use their own connections, never blocked by a write transaction
+        setWriteAheadLoggingEnabled(true);
     }
 
     /**
-     * Returns DBHelper. Each time you call this method, you must call #release
+     * Returns DBHelper of process, opened on first call and never released: nothing to release after use.
      *
      * @param context
      * @return DBHelper
-     * @see #release()
      */
-    public static DBHelper getHelper(Context context) {
-        return OpenHelperManager.getHelper(context, DBHelper.class);
+    public static synchronized DBHelper getHelper(Context context) {
+        if (helper == null) {
+            helper = OpenHelperManager.getHelper(context.getApplicationContext(), DBHelper.class);
+        }
+        return helper;
+    }
+
+    /**
+     * Switches a new or small database to incremental auto vacuum, see {@link #switchToIncrementalVacuum(SQLiteDatabase)}.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        switchToIncrementalVacuum(db);
+    }
+
+    /**
+     * Auto vacuum mode only changes by a full vacuum once a table exists, and android_metadata is created before {@link #onCreate}:
+     * mode is set then applied by a VACUUM, once, out of any transaction.
+     */
+    private static void switchToIncrementalVacuum(SQLiteDatabase db) {
+        try {
+            if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum;", null) == AUTO_VACUUM_INCREMENTAL) {
+                return;
+            }
+            long size = DatabaseUtils.longForQuery(db, "PRAGMA page_count;", null) * DatabaseUtils.longForQuery(db, "PRAGMA page_size;", null);
+            if (size > MAX_AUTO_SWITCH_SIZE) {
+                return;
+            }
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL;");
+            db.execSQL("VACUUM;");
+        } catch (android.database.SQLException e) {
+            Log.e(TAG, "switchToIncrementalVacuum", e);
+        }
     }
 
     /**
@@ -63,6 +133,14 @@ public class DBHelper extends OrmLiteSqliteOpenHelper {
         try {
             TableUtils.createTable(connectionSource, SiteSettings.class);
             TableUtils.createTable(connectionSource, SiteCall.class);
+            getDao(SiteCall.class).executeRaw(DBSiteCall.CREATE_SITE_DATE_INDEX);
+            getDao(SiteCall.class).executeRaw(DBSiteCall.CREATE_ERROR_DATE_INDEX);
+            TableUtils.createTable(connectionSource, CallMessage.class);
+            TableUtils.createTable(connectionSource, HourlyRollup.class);
+            TableUtils.createTable(connectionSource, DailyRollup.class);
+            TableUtils.createTable(connectionSource, CallSegment.class);
+            TableUtils.createTable(connectionSource, Incident.class);
+            getDao(Incident.class).executeRaw(DBIncident.CREATE_SITE_END_INDEX);
             Log.i(DBHelper.class.getName(), "database created");
         } catch (SQLException e) {
             Log.e(TAG, "Can't create database", e);
@@ -84,6 +162,190 @@ public class DBHelper extends OrmLiteSqliteOpenHelper {
                 Log.e(TAG, "onUpgrade < 2, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
             }
         }
+        if (oldVersion < 3) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN connectionReused BOOLEAN;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 3, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 4) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN handshakeTime BIGINT;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 4, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 5) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN dnsTime BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN connectTime BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN ttfbTime BIGINT;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 5, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 6) {
+            try {
+                Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN timeout INTEGER;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 6, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 7) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN route VARCHAR;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN hostTime BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN internalTime BIGINT;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 7, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 8) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN attempts INTEGER;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN retryTime BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN maxAttempts INTEGER;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 8, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 9) {
+            try {
+                Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN circuitState VARCHAR;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN consecutiveFailures INTEGER DEFAULT 0;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN circuitOpenings INTEGER DEFAULT 0;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN circuitRetryAt BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN skippedCycles INTEGER DEFAULT 0;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN skippedCycles INTEGER;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 9, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 10) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                // calls of removed sites, never purged once purge is bounded by site
+                dao.executeRaw("DELETE FROM `sitecall` WHERE `siteSettings_id` NOT IN (SELECT `id` FROM `sitesettings`);");
+                dao.executeRaw(DBSiteCall.CREATE_SITE_DATE_INDEX);
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 10, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 11) {
+            try {
+                Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN lastResult VARCHAR;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN lastCallDate VARCHAR;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN lastResponseTime BIGINT;");
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN streakStart VARCHAR;");
+                // status from history, once
+                dao.executeRaw("UPDATE `sitesettings` SET "
+                        + "lastResult = (SELECT c.result FROM `sitecall` c WHERE c.siteSettings_id = `sitesettings`.id ORDER BY c.date DESC LIMIT 1), "
+                        + "lastCallDate = (SELECT MAX(c.date) FROM `sitecall` c WHERE c.siteSettings_id = `sitesettings`.id), "
+                        + "lastResponseTime = (SELECT c.responseTime FROM `sitecall` c WHERE c.siteSettings_id = `sitesettings`.id ORDER BY c.date DESC LIMIT 1);");
+                dao.executeRaw("UPDATE `sitesettings` SET streakStart = (SELECT MIN(c.date) FROM `sitecall` c WHERE c.siteSettings_id = `sitesettings`.id "
+                        + "AND c.date > IFNULL((SELECT MAX(d.date) FROM `sitecall` d WHERE d.siteSettings_id = `sitesettings`.id AND d.result != `sitesettings`.lastResult), '')) "
+                        + "WHERE lastResult IS NOT NULL;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 11, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 12) {
+            try {
+                TableUtils.createTableIfNotExists(connectionSource, HourlyRollup.class);
+                TableUtils.createTableIfNotExists(connectionSource, DailyRollup.class);
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                // rollups of history, without latency sketch; dates are local time strings
+                dao.executeRaw("INSERT INTO `hourlyrollup` (siteSettings_id, bucket, count, successCount, failCount, minResponseTime, maxResponseTime, sumResponseTime) "
+                        + "SELECT siteSettings_id, strftime('%s', substr(date, 1, 13) || ':00:00', 'utc') * 1000, " + ROLLUP_OF_CALLS);
+                dao.executeRaw("INSERT INTO `dailyrollup` (siteSettings_id, bucket, count, successCount, failCount, minResponseTime, maxResponseTime, sumResponseTime) "
+                        + "SELECT siteSettings_id, strftime('%s', substr(date, 1, 10), 'utc') * 1000, " + ROLLUP_OF_CALLS);
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 12, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 13) {
+            try {
+                // history is packed by purge once enabled
+                TableUtils.createTableIfNotExists(connectionSource, CallSegment.class);
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 13, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 14) {
+            try {
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                // column types can't be altered: calls are copied to new layout, local time strings to millis.
+                // Upgrade runs in one transaction, a failure must roll it back or calls would stay in old table
+                dao.executeRaw("ALTER TABLE `sitecall` RENAME TO `sitecall_v13`;");
+                dao.executeRaw(CREATE_SITE_CALL_V14);
+                StringBuilder resultOrdinal = new StringBuilder("CASE result");
+                for (NetworkCallResult result : NetworkCallResult.values()) {
+                    resultOrdinal.append(" WHEN '").append(result.name()).append("' THEN ").append(result.ordinal());
+                }
+                resultOrdinal.append(" END");
+                String copy = "INSERT INTO `sitecall` (id, date, result, " + SITE_CALL_V14_OTHER_COLUMNS + ") "
+                        + "SELECT id, strftime('%s', substr(date, 1, 19), 'utc') * 1000 + CAST(substr(date, 21) AS INTEGER), " + resultOrdinal + ", "
+                        + SITE_CALL_V14_OTHER_COLUMNS + " FROM `sitecall_v13`;";
+                dao.executeRaw(copy);
+                dao.executeRaw("DROP TABLE `sitecall_v13`;");
+                dao.executeRaw(DBSiteCall.CREATE_SITE_DATE_INDEX);
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 14, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+                throw new RuntimeException(e);
+            }
+        }
+        if (oldVersion < 15) {
+            try {
+                TableUtils.createTableIfNotExists(connectionSource, CallMessage.class);
+                Dao<SiteCall, Long> dao = getDao(SiteCall.class);
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN error INTEGER;");
+                dao.executeRaw("ALTER TABLE `sitecall` ADD COLUMN messageId BIGINT;");
+                dao.executeRaw("UPDATE `sitecall` SET error = " + ERROR_OF_MESSAGE + " WHERE result = " + NetworkCallResult.FAIL.ordinal() + ";");
+                dao.executeRaw(DBSiteCall.CREATE_ERROR_DATE_INDEX);
+                // messages move to dictionary, exception column can't be dropped and stays empty
+                dao.executeRaw("INSERT INTO `callmessage` (message) SELECT DISTINCT exception FROM `sitecall` WHERE exception IS NOT NULL;");
+                dao.executeRaw("UPDATE `sitecall` SET messageId = (SELECT m.id FROM `callmessage` m WHERE m.message = `sitecall`.exception), exception = NULL "
+                        + "WHERE exception IS NOT NULL;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 15, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 16) {
+            try {
+                Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+                dao.executeRaw("ALTER TABLE `sitesettings` ADD COLUMN retentionDays INTEGER;");
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 16, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
+        if (oldVersion < 17) {
+            try {
+                TableUtils.createTableIfNotExists(connectionSource, Incident.class);
+                getDao(Incident.class).executeRaw(DBIncident.CREATE_SITE_END_INDEX);
+                // incidents of history still kept, one site at a time
+                DBIncident dbIncident = getDBIncident();
+                DBSiteCall dbSiteCall = getDBSiteCall();
+                for (SiteSettings siteSettings : getDBSiteSettings().queryForAll()) {
+                    CloseableIterator<SiteCall> siteCalls = dbSiteCall.iterateResults(siteSettings);
+                    try {
+                        dbIncident.rebuild(siteSettings, siteCalls);
+                    } finally {
+                        siteCalls.closeQuietly();
+                    }
+                }
+            } catch (SQLException e) {
+                Log.e(TAG, "onUpgrade < 17, oldVersion: " + oldVersion + " newVersion: " + newVersion, e);
+            }
+        }
     }
 
     /**
@@ -92,21 +354,102 @@ public class DBHelper extends OrmLiteSqliteOpenHelper {
     @Override
     public void close() {
         super.close();
+        synchronized (this) {
+            dbCallMessage = null;
+        }
     }
 
-    public DBSiteSettings getDBSiteSettings() throws SQLException {
-        return new DBSiteSettings(this.<Dao<SiteSettings, Long>, SiteSettings>getDao(SiteSettings.class));
+    /**
+     * Gives pages freed by removals back to file system, out of any transaction.<br/>
+     * Does nothing until database is in incremental auto vacuum: switched on open while small, or by {@link #compact()}.
+     *
+     * @throws SQLException
+     */
+    public void incrementalVacuum() throws SQLException {
+        Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+        if (dao.queryRawValue("PRAGMA auto_vacuum;") != AUTO_VACUUM_INCREMENTAL) {
+            return;
+        }
+        // a page is freed per row read
+        dao.queryRaw("PRAGMA incremental_vacuum;").getResults();
     }
 
-    public DBSiteCall getDBSiteCall() throws SQLException {
-        return new DBSiteCall(this.<Dao<SiteCall, Long>, SiteCall>getDao(SiteCall.class));
+    /**
+     * Rebuilds database file with a full vacuum and switches it to incremental auto vacuum.<br/>
+     * Blocks readers and writers for as long as the whole file is copied: explicit maintenance action only, out of any transaction.
+     *
+     * @throws SQLException
+     */
+    public void compact() throws SQLException {
+        Dao<SiteSettings, Long> dao = getDao(SiteSettings.class);
+        dao.executeRaw("PRAGMA auto_vacuum = INCREMENTAL;");
+        dao.executeRaw("VACUUM;");
+    }
+
+    /**
+     * Removes site with its calls, rollups, segments and incidents in one transaction on writer thread: a batch of calls flushed meanwhile finds no site and writes nothing.
+     *
+     * @throws SQLException
+     */
+    public void removeSite(final SiteSettings siteSettings) throws SQLException {
+        final DBSiteSettings dbSiteSettings = getDBSiteSettings();
+        final DBSiteCall dbSiteCall = getDBSiteCall();
+        final DBCallRollup dbCallRollup = getDBCallRollup();
+        final DBCallSegment dbCallSegment = getDBCallSegment();
+        final DBIncident dbIncident = getDBIncident();
+        writer.call(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                return dbSiteCall.callBatchTasks(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        dbSiteSettings.delete(siteSettings);
+                        dbSiteCall.removeCallsOf(siteSettings);
+                        dbCallRollup.removeRollupsOf(siteSettings);
+                        dbCallSegment.removeSegmentsOf(siteSettings);
+                        dbIncident.removeIncidentsOf(siteSettings);
+                        return null;
+                    }
+                });
+            }
+        });
     }
 
+    /**
+     * @return thread of history writes
+     */
+    public DBWriter getWriter() {
+        return writer;
+    }
 
     /**
-     * Must be call by each entities that has call #getHelper before when no more using it.
+     * @return dictionary of messages, one per helper to share its cache
      */
-    public void release() {
-        OpenHelperManager.releaseHelper();
+    public synchronized DBCallMessage getDBCallMessage() throws SQLException {
+        if (dbCallMessage == null) {
+            dbCallMessage = new DBCallMessage(this.<Dao<CallMessage, Long>, CallMessage>getDao(CallMessage.class));
+        }
+        return dbCallMessage;
+    }
+
+    public DBCallSegment getDBCallSegment() throws SQLException {
+        return new DBCallSegment(this.<Dao<CallSegment, Long>, CallSegment>getDao(CallSegment.class));
+    }
+
+    public DBIncident getDBIncident() throws SQLException {
+        return new DBIncident(this.<Dao<Incident, Long>, Incident>getDao(Incident.class));
+    }
+
+    public DBCallRollup getDBCallRollup() throws SQLException {
+        return new DBCallRollup(this.<Dao<HourlyRollup, Long>, HourlyRollup>getDao(HourlyRollup.class),
+                this.<Dao<DailyRollup, Long>, DailyRollup>getDao(DailyRollup.class));
+    }
+
+    public DBSiteSettings getDBSiteSettings() throws SQLException {
+        return new DBSiteSettings(this.<Dao<SiteSettings, Long>, SiteSettings>getDao(SiteSettings.class));
+    }
+
+    public DBSiteCall getDBSiteCall() throws SQLException {
+        return new DBSiteCall(this.<Dao<SiteCall, Long>, SiteCall>getDao(SiteCall.class), getDBCallMessage());
     }
 }
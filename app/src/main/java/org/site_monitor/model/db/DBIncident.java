@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.db;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedDelete;
+
+import org.site_monitor.model.bo.Incident;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Incidents of sites, kept as calls are written instead of found again in history.
+ */
+public class DBIncident {
+
+    private static final String F_SITE_SETTINGS_ID = "siteSettings_id";
+    private static final String F_START_DATE = "startDate";
+    private static final String F_END_DATE = "endDate";
+    /**
+     * Serves open incident of a site.
+     */
+    static final String CREATE_SITE_END_INDEX = "CREATE INDEX IF NOT EXISTS `incident_site_end_idx` ON `incident` (`" + F_SITE_SETTINGS_ID + "`, `" + F_END_DATE + "`);";
+    private Dao<Incident, Long> dao;
+
+    public DBIncident(Dao<Incident, Long> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Opens incident of site of a failed call or counts call in it, closes it on a successful call.
+     * To run in transaction creating call.
+     *
+     * @param siteCall call with its site
+     * @throws SQLException
+     */
+    public void onCall(SiteCall siteCall) throws SQLException {
+        NetworkCallResult result = siteCall.getResult();
+        if (result != NetworkCallResult.FAIL && result != NetworkCallResult.SUCCESS) {
+            return;
+        }
+        Incident incident = findOpen(siteCall.getSiteSettings());
+        if (result == NetworkCallResult.FAIL) {
+            if (incident == null) {
+                dao.create(new Incident(siteCall.getSiteSettings(), siteCall));
+            } else {
+                incident.onFail();
+                dao.update(incident);
+            }
+        } else if (incident != null) {
+            incident.close(siteCall.getDate());
+            dao.update(incident);
+        }
+    }
+
+    /**
+     * Builds incidents of a site from its history, site must have none.
+     *
+     * @param siteCalls calls of site, oldest first
+     * @return count of incidents created
+     * @throws SQLException
+     */
+    public int rebuild(SiteSettings siteSettings, Iterator<SiteCall> siteCalls) throws SQLException {
+        int count = 0;
+        Incident incident = null;
+        while (siteCalls.hasNext()) {
+            SiteCall siteCall = siteCalls.next();
+            if (siteCall.getResult() == NetworkCallResult.FAIL) {
+                if (incident == null) {
+                    incident = new Incident(siteSettings, siteCall);
+                } else {
+                    incident.onFail();
+                }
+            } else if (siteCall.getResult() == NetworkCallResult.SUCCESS && incident != null) {
+                incident.close(siteCall.getDate());
+                dao.create(incident);
+                count++;
+                incident = null;
+            }
+        }
+        if (incident != null) {
+            dao.create(incident);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return incident site is in, null if none
+     * @throws SQLException
+     */
+    public Incident findOpen(SiteSettings siteSettings) throws SQLException {
+        return dao.queryBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().isNull(F_END_DATE).queryForFirst();
+    }
+
+    /**
+     * @param limit max count of incidents
+     * @return last incidents of site, most recent first
+     * @throws SQLException
+     */
+    public List<Incident> findLast(SiteSettings siteSettings, long limit) throws SQLException {
+        return dao.queryBuilder().orderBy(F_START_DATE, false).limit(limit).where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).query();
+    }
+
+    /**
+     * @return count of closed incidents removed
+     */
+    public int removeIncidentsBefore(Date date) throws SQLException {
+        return dao.delete((PreparedDelete<Incident>) dao.deleteBuilder().where().lt(F_END_DATE, date).prepare());
+    }
+
+    public int removeIncidentsOf(SiteSettings siteSettings) throws SQLException {
+        return dao.delete((PreparedDelete<Incident>) dao.deleteBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).prepare());
+    }
+}
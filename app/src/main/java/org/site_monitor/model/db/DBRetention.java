@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.db;
+
+import android.util.Log;
+
+import org.site_monitor.BuildConfig;
+import org.site_monitor.model.bo.SiteSettings;
+
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.Callable;
+
+/**
+ * Retention of history: calls of each site for its retention days ({@link #DEFAULT_RETENTION_DAYS} by default),
+ * hourly rollups and packed segments for {@link #HOURLY_RETENTION_MONTHS} months, daily rollups and incidents for {@link #DAILY_RETENTION_YEARS} years.<br/>
+ * Calls are removed by batches of {@link #BATCH_SIZE}, each a short write of {@link DBWriter} so that calls of checks are never held long,
+ * then freed pages are given back by incremental vacuum. Long running: call it out of main thread.
+ */
+public class DBRetention {
+
+    public static final int DEFAULT_RETENTION_DAYS = 7;
+    public static final int HOURLY_RETENTION_MONTHS = 3;
+    public static final int DAILY_RETENTION_YEARS = 2;
+    public static final int BATCH_SIZE = 500;
+    private static final String TAG = DBRetention.class.getSimpleName();
+    // lets readers and writers in between batches
+    private static final long BATCH_PAUSE = 20;
+    private final DBHelper dbHelper;
+    private volatile boolean cancelled;
+
+    public DBRetention(DBHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * @return start of history kept for site
+     */
+    public static Date retentionStart(SiteSettings siteSettings) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_YEAR, -(siteSettings.getRetentionDays() == null ? DEFAULT_RETENTION_DAYS : siteSettings.getRetentionDays()));
+        return calendar.getTime();
+    }
+
+    /**
+     * Stops run after current batch.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @param packHistory pack whole days of expired calls into segments before removing them
+     * @return count of calls removed
+     * @throws SQLException
+     */
+    public int run(boolean packHistory) throws SQLException {
+        final DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
+        final DBCallSegment dbCallSegment = dbHelper.getDBCallSegment();
+        DBWriter writer = dbHelper.getWriter();
+        int nbCalls = 0;
+        for (SiteSettings siteSettings : dbHelper.getDBSiteSettings().queryForAll()) {
+            if (cancelled) {
+                return nbCalls;
+            }
+            final SiteSettings site = siteSettings;
+            Date start = retentionStart(siteSettings);
+            if (packHistory) {
+                // calls of first day kept stay raw, to be packed with the whole day
+                start = new Date(DBCallRollup.dayOf(start));
+                Date first = dbSiteCall.findFirstDateBefore(site, start);
+                while (first != null) {
+                    final long day = DBCallRollup.dayOf(first);
+                    final long nextDay = nextDay(day);
+                    writer.call(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws SQLException {
+                            return dbCallSegment.packDay(dbSiteCall, site, day, nextDay);
+                        }
+                    });
+                    // day is removed once packed, a run cancelled in between packs it again without duplicates
+                    nbCalls += removeCallsBefore(writer, dbSiteCall, site, new Date(nextDay));
+                    if (cancelled || !pause()) {
+                        return nbCalls;
+                    }
+                    first = dbSiteCall.findFirstDateBefore(site, start);
+                }
+            }
+            nbCalls += removeCallsBefore(writer, dbSiteCall, site, start);
+            if (cancelled) {
+                return nbCalls;
+            }
+        }
+        if (BuildConfig.DEBUG) {
+            Log.i(TAG, "run: " + nbCalls + " calls removed");
+        }
+
+        writer.call(new Callable<Void>() {
+            @Override
+            public Void call() throws SQLException {
+                removeSummaries(dbCallSegment);
+                return null;
+            }
+        });
+        if (!cancelled) {
+            writer.call(new Callable<Void>() {
+                @Override
+                public Void call() throws SQLException {
+                    dbHelper.incrementalVacuum();
+                    return null;
+                }
+            });
+        }
+        return nbCalls;
+    }
+
+    /**
+     * Removes calls of site before date by batches, each a write of its own.
+     *
+     * @return count of calls removed, stops early if cancelled
+     */
+    private int removeCallsBefore(DBWriter writer, final DBSiteCall dbSiteCall, final SiteSettings siteSettings, final Date before) throws SQLException {
+        Callable<Integer> removeBatch = new Callable<Integer>() {
+            @Override
+            public Integer call() throws SQLException {
+                return dbSiteCall.removeCallsBefore(siteSettings, before, BATCH_SIZE);
+            }
+        };
+        int removed = writer.call(removeBatch);
+        int nbCalls = removed;
+        while (removed == BATCH_SIZE) {
+            if (cancelled || !pause()) {
+                return nbCalls;
+            }
+            removed = writer.call(removeBatch);
+            nbCalls += removed;
+        }
+        return nbCalls;
+    }
+
+    /**
+     * @return start in millis of local day after day
+     */
+    private static long nextDay(long day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(day);
+        calendar.add(Calendar.DAY_OF_YEAR, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private void removeSummaries(DBCallSegment dbCallSegment) throws SQLException {
+        DBCallRollup dbCallRollup = dbHelper.getDBCallRollup();
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -HOURLY_RETENTION_MONTHS);
+        int nbHourly = dbCallRollup.removeHourlyBefore(calendar.getTime());
+        int nbSegments = dbCallSegment.removeSegmentsBefore(calendar.getTime());
+        calendar = Calendar.getInstance();
+        calendar.add(Calendar.YEAR, -DAILY_RETENTION_YEARS);
+        int nbDaily = dbCallRollup.removeDailyBefore(calendar.getTime());
+        int nbIncidents = dbHelper.getDBIncident().removeIncidentsBefore(calendar.getTime());
+        int nbMessages = dbHelper.getDBCallMessage().removeUnused();
+        if (BuildConfig.DEBUG) {
+            Log.i(TAG, "run: " + nbHourly + " hourly rollups, " + nbSegments + " segments, " + nbDaily + " daily rollups, " + nbIncidents + " incidents, "
+                    + nbMessages + " messages removed");
+        }
+    }
+
+    /**
+     * @return false if interrupted, run is then cancelled
+     */
+    private boolean pause() {
+        try {
+            Thread.sleep(BATCH_PAUSE);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+            return false;
+        }
+    }
+}
@@ -15,30 +15,185 @@
 
 package org.site_monitor.model.db;
 
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.stmt.PreparedDelete;
+import com.j256.ormlite.stmt.Where;
 
+import org.site_monitor.model.bo.CallError;
 import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Created by Martin Norbert on 31/01/2016.
  */
 public class DBSiteCall {
 
+    private static final String F_ID = "id";
+    private static final String F_DATE = "date";
+    private static final String F_RESULT = "result";
+    private static final String F_ERROR = "error";
+    private static final String F_SITE_SETTINGS_ID = "siteSettings_id";
+    /**
+     * Serves every access by site ordered or bounded by date: last calls, periods and purge.
+     */
+    static final String CREATE_SITE_DATE_INDEX = "CREATE INDEX IF NOT EXISTS `sitecall_site_date_idx` ON `sitecall` (`" + F_SITE_SETTINGS_ID + "`, `" + F_DATE + "`);";
+    /**
+     * Serves failures of a class in a period, all sites.
+     */
+    static final String CREATE_ERROR_DATE_INDEX = "CREATE INDEX IF NOT EXISTS `sitecall_error_date_idx` ON `sitecall` (`" + F_ERROR + "`, `" + F_DATE + "`);";
+    // oldest calls of a site, found by site and date index
+    private static final String REMOVE_BATCH_BEFORE = "DELETE FROM `sitecall` WHERE `" + F_ID + "` IN (SELECT `" + F_ID + "` FROM `sitecall` "
+            + "WHERE `" + F_SITE_SETTINGS_ID + "` = ? AND `" + F_DATE + "` < ? ORDER BY `" + F_DATE + "` LIMIT ?);";
     private Dao<SiteCall, Long> dao;
+    private DBCallMessage dbCallMessage;
 
-    public DBSiteCall(Dao<SiteCall, Long> dao) {
+    public DBSiteCall(Dao<SiteCall, Long> dao, DBCallMessage dbCallMessage) {
         this.dao = dao;
+        this.dbCallMessage = dbCallMessage;
     }
 
     public int create(SiteCall siteCall) throws SQLException {
+        siteCall.setMessageId(dbCallMessage.idOf(siteCall.getException()));
         return dao.create(siteCall);
     }
 
-    public int removeCallsBefore(Date date) throws SQLException {
-        return dao.delete((PreparedDelete<SiteCall>) dao.deleteBuilder().where().lt("date", date).prepare());
+    private List<SiteCall> withMessages(List<SiteCall> siteCalls) throws SQLException {
+        for (SiteCall siteCall : siteCalls) {
+            withMessage(siteCall);
+        }
+        return siteCalls;
+    }
+
+    private SiteCall withMessage(SiteCall siteCall) throws SQLException {
+        if (siteCall != null && siteCall.getMessageId() != null) {
+            siteCall.setException(dbCallMessage.messageOf(siteCall.getMessageId()));
+        }
+        return siteCall;
+    }
+
+    /**
+     * Runs tasks in one transaction.
+     *
+     * @param callable tasks using this and other DAOs of helper
+     * @return result of callable
+     * @throws SQLException
+     */
+    public <T> T callBatchTasks(Callable<T> callable) throws SQLException {
+        try {
+            return dao.callBatchTasks(callable);
+        } catch (SQLException e) {
+            dbCallMessage.clear();
+            throw e;
+        } catch (Exception e) {
+            dbCallMessage.clear();
+            throw new SQLException("batch tasks failed", e);
+        }
+    }
+
+    /**
+     * Removes oldest calls of site before date, at most limit so that database is not held long.
+     *
+     * @return count of calls removed, less than limit once none is left before date
+     * @throws SQLException
+     */
+    public int removeCallsBefore(SiteSettings siteSettings, Date date, int limit) throws SQLException {
+        return dao.executeRaw(REMOVE_BATCH_BEFORE, String.valueOf(siteSettings.getId()), String.valueOf(date.getTime()), String.valueOf(limit));
+    }
+
+    /**
+     * Calls of a removed site would never be purged.
+     *
+     * @param siteSettings site of calls
+     * @return count of calls removed
+     * @throws SQLException
+     */
+    public int removeCallsOf(SiteSettings siteSettings) throws SQLException {
+        return dao.delete((PreparedDelete<SiteCall>) dao.deleteBuilder().where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).prepare());
+    }
+
+    /**
+     * @param siteSettings site of calls
+     * @param limit        max count of calls
+     * @return last calls of site, oldest first
+     * @throws SQLException
+     */
+    public List<SiteCall> findLastCalls(SiteSettings siteSettings, long limit) throws SQLException {
+        List<SiteCall> siteCalls = dao.queryBuilder().orderBy(F_DATE, false).limit(limit)
+                .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).query();
+        Collections.reverse(siteCalls);
+        return withMessages(siteCalls);
+    }
+
+    /**
+     * Page of history keyed on date, most recent first: read by site and date index however deep the page is,
+     * where an offset would read and skip every newer call.
+     *
+     * @param siteSettings site of calls
+     * @param after        last call of previous page, null for most recent page
+     * @param limit        max count of calls
+     * @return calls of site older than after, most recent first, less than limit on last page
+     * @throws SQLException
+     */
+    public List<SiteCall> findPage(SiteSettings siteSettings, SiteCall after, long limit) throws SQLException {
+        Where<SiteCall, Long> where = dao.queryBuilder().orderBy(F_DATE, false).orderBy(F_ID, false).limit(limit).where();
+        if (after == null) {
+            where.eq(F_SITE_SETTINGS_ID, siteSettings.getId());
+        } else {
+            // date bound starts index scan at previous page, id breaks ties of calls of same date
+            where.and(where.eq(F_SITE_SETTINGS_ID, siteSettings.getId()), where.le(F_DATE, after.getDate()),
+                    where.or(where.lt(F_DATE, after.getDate()), where.lt(F_ID, after.getId())));
+        }
+        return withMessages(where.query());
+    }
+
+    /**
+     * @return date of oldest call of site before date, null if none
+     * @throws SQLException
+     */
+    public Date findFirstDateBefore(SiteSettings siteSettings, Date date) throws SQLException {
+        SiteCall siteCall = dao.queryBuilder().selectColumns(F_DATE).orderBy(F_DATE, true)
+                .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().lt(F_DATE, date).queryForFirst();
+        return siteCall == null ? null : siteCall.getDate();
+    }
+
+    /**
+     * @param siteSettings site of calls
+     * @param from         first date included
+     * @param to           last date excluded
+     * @return calls of site in period, oldest first
+     * @throws SQLException
+     */
+    public List<SiteCall> findCallsBetween(SiteSettings siteSettings, Date from, Date to) throws SQLException {
+        return withMessages(dao.queryBuilder().orderBy(F_DATE, true)
+                .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).and().ge(F_DATE, from).and().lt(F_DATE, to).query());
+    }
+
+    /**
+     * @param siteSettings site of calls
+     * @return dates, results and errors of all calls of site, oldest first, read one at a time: close it
+     * @throws SQLException
+     */
+    public CloseableIterator<SiteCall> iterateResults(SiteSettings siteSettings) throws SQLException {
+        return dao.queryBuilder().selectColumns(F_DATE, F_RESULT, F_ERROR).orderBy(F_DATE, true)
+                .where().eq(F_SITE_SETTINGS_ID, siteSettings.getId()).iterator();
+    }
+
+    /**
+     * @param error class of failure
+     * @param from  first date included
+     * @param to    last date excluded
+     * @return failed calls of class in period, all sites, oldest first
+     * @throws SQLException
+     */
+    public List<SiteCall> findErrorsBetween(CallError error, Date from, Date to) throws SQLException {
+        return withMessages(dao.queryBuilder().orderBy(F_DATE, true)
+                .where().eq(F_ERROR, error).and().ge(F_DATE, from).and().lt(F_DATE, to).query());
     }
 }
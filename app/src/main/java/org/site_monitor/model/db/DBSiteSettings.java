@@ -16,6 +16,7 @@
 package org.site_monitor.model.db;
 
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.UpdateBuilder;
 
 import org.site_monitor.model.bo.SiteSettings;
 
@@ -28,6 +29,24 @@ import java.util.List;
 public class DBSiteSettings {
 
     private static final String F_HOST = "host";
+    private static final String F_ID = "id";
+    private static final String F_NAME = "name";
+    private static final String F_INTERNAL_URL = "internalUrl";
+    private static final String F_NOTIFICATION_ENABLED = "isNotificationEnabled";
+    private static final String F_FORCED_CERTIFICATE = "forcedCertificate";
+    private static final String F_FAVICON = "favicon";
+    private static final String F_TIMEOUT = "timeout";
+    private static final String F_MAX_ATTEMPTS = "maxAttempts";
+    private static final String F_RETENTION_DAYS = "retentionDays";
+    private static final String F_CIRCUIT_STATE = "circuitState";
+    private static final String F_CONSECUTIVE_FAILURES = "consecutiveFailures";
+    private static final String F_CIRCUIT_OPENINGS = "circuitOpenings";
+    private static final String F_CIRCUIT_RETRY_AT = "circuitRetryAt";
+    private static final String F_SKIPPED_CYCLES = "skippedCycles";
+    private static final String F_LAST_RESULT = "lastResult";
+    private static final String F_LAST_CALL_DATE = "lastCallDate";
+    private static final String F_LAST_RESPONSE_TIME = "lastResponseTime";
+    private static final String F_STREAK_START = "streakStart";
 
     private Dao<SiteSettings, Long> dao;
 
@@ -43,8 +62,89 @@ public class DBSiteSettings {
         return dao.create(siteSettings);
     }
 
-    public int update(SiteSettings siteSettings) throws SQLException {
-        return dao.update(siteSettings);
+    public int updateName(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_NAME, siteSettings.getName());
+    }
+
+    public int updateInternalUrl(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_INTERNAL_URL, siteSettings.getInternalUrl());
+    }
+
+    public int updateTimeout(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_TIMEOUT, siteSettings.getTimeout());
+    }
+
+    public int updateMaxAttempts(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_MAX_ATTEMPTS, siteSettings.getMaxAttempts());
+    }
+
+    public int updateRetentionDays(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_RETENTION_DAYS, siteSettings.getRetentionDays());
+    }
+
+    public int updateFavicon(SiteSettings siteSettings) throws SQLException {
+        return updateColumn(siteSettings, F_FAVICON, siteSettings.getFavicon());
+    }
+
+    /**
+     * Saves notification and certificate trust of site only.
+     */
+    public int updateOptions(SiteSettings siteSettings) throws SQLException {
+        UpdateBuilder<SiteSettings, Long> updateBuilder = dao.updateBuilder();
+        updateBuilder.updateColumnValue(F_NOTIFICATION_ENABLED, siteSettings.isNotificationEnabled())
+                .updateColumnValue(F_FORCED_CERTIFICATE, siteSettings.isForcedCertificate())
+                .where().eq(F_ID, siteSettings.getId());
+        return updateBuilder.update();
+    }
+
+    /**
+     * Edits of a site save their own column only: copy of site edited may be older than its row, whose status and circuit are kept by checks.
+     */
+    private int updateColumn(SiteSettings siteSettings, String column, Object value) throws SQLException {
+        UpdateBuilder<SiteSettings, Long> updateBuilder = dao.updateBuilder();
+        updateBuilder.updateColumnValue(column, value).where().eq(F_ID, siteSettings.getId());
+        return updateBuilder.update();
+    }
+
+    public SiteSettings findForId(Long id) throws SQLException {
+        return dao.queryForId(id);
+    }
+
+    /**
+     * Counts a cycle that skipped site, in SQL: other fields of row are left as they are.
+     *
+     * @param siteSettings site with an id
+     * @return count of updated rows
+     * @throws SQLException
+     */
+    public int incrementSkippedCycles(SiteSettings siteSettings) throws SQLException {
+        UpdateBuilder<SiteSettings, Long> updateBuilder = dao.updateBuilder();
+        updateBuilder.updateColumnExpression(F_SKIPPED_CYCLES, updateBuilder.escapeColumnName(F_SKIPPED_CYCLES) + " + 1")
+                .where().eq(F_ID, siteSettings.getId());
+        return updateBuilder.update();
+    }
+
+    /**
+     * Saves current status and circuit breaker state of site only, other fields of row are left as they are.
+     * Site must have been read in the transaction saving it.
+     *
+     * @param siteSettings site with an id
+     * @return count of updated rows
+     * @throws SQLException
+     */
+    public int updateStatus(SiteSettings siteSettings) throws SQLException {
+        UpdateBuilder<SiteSettings, Long> updateBuilder = dao.updateBuilder();
+        updateBuilder.updateColumnValue(F_LAST_RESULT, siteSettings.getLastResult())
+                .updateColumnValue(F_LAST_CALL_DATE, siteSettings.getLastCallDate())
+                .updateColumnValue(F_LAST_RESPONSE_TIME, siteSettings.getLastResponseTime())
+                .updateColumnValue(F_STREAK_START, siteSettings.getStreakStart())
+                .updateColumnValue(F_CIRCUIT_STATE, siteSettings.getCircuitState())
+                .updateColumnValue(F_CONSECUTIVE_FAILURES, siteSettings.getConsecutiveFailures())
+                .updateColumnValue(F_CIRCUIT_OPENINGS, siteSettings.getCircuitOpenings())
+                .updateColumnValue(F_CIRCUIT_RETRY_AT, siteSettings.getCircuitRetryAt())
+                .updateColumnValue(F_SKIPPED_CYCLES, siteSettings.getSkippedCycles())
+                .where().eq(F_ID, siteSettings.getId());
+        return updateBuilder.update();
     }
 
     public int delete(SiteSettings siteSettings) throws SQLException {
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.model.db;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single thread of history writes: calls of check cycles, retention batches.<br/>
+ * Writes run one after the other instead of waiting on each other's transactions, readers never wait on them (write-ahead log).
+ */
+public class DBWriter {
+
+    private static final String THREAD_NAME = "db-writer";
+    private final ScheduledExecutorService executor;
+    private volatile Thread thread;
+
+    DBWriter() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param task write to run as soon as previous ones are done
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * @param task  write to run after delay
+     * @param delay in millis
+     */
+    public void schedule(Runnable task, long delay) {
+        executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs write on writer thread and waits for it, runs it in place if called from writer thread.
+     *
+     * @param task write
+     * @return result of write
+     * @throws SQLException thrown by write, or if interrupted while waiting
+     */
+    public <T> T call(Callable<T> task) throws SQLException {
+        try {
+            if (Thread.currentThread() == thread) {
+                return task.call();
+            }
+            return executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for write", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("write failed", e.getCause());
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("write failed", e);
+        }
+    }
+}
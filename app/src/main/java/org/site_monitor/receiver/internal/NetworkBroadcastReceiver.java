@@ -29,6 +29,7 @@ import org.site_monitor.service.FavIconService;
 import org.site_monitor.service.NetworkService;
 import org.site_monitor.util.BroadcastUtil;
 import org.site_monitor.util.ConnectivityUtil;
+import org.site_monitor.util.DnsCache;
 
 public class NetworkBroadcastReceiver extends BroadcastReceiver {
 
@@ -58,6 +59,12 @@ public class NetworkBroadcastReceiver extends BroadcastReceiver {
                     Log.d(TAG, "ACTION_SITE_END_REFRESH: " + siteSettings + " " + siteCall);
                 }
                 listener.onSiteEndRefresh(siteSettings, siteCall);
+            } else if (NetworkService.ACTION_CALLS_WRITTEN.equals(intent.getAction())) {
+                long[] siteIds = intent.getLongArrayExtra(BroadcastUtil.EXTRA_SITE_IDS);
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "ACTION_CALLS_WRITTEN: " + siteIds.length);
+                }
+                listener.onCallsWritten(siteIds);
             } else if (FavIconService.ACTION_FAVICON_UPDATED.equals(intent.getAction())) {
                 SiteSettings siteSettings = intent.getParcelableExtra(BroadcastUtil.EXTRA_SITE);
                 Bitmap favicon = intent.getParcelableExtra(BroadcastUtil.EXTRA_FAVICON);
@@ -70,6 +77,8 @@ public class NetworkBroadcastReceiver extends BroadcastReceiver {
                 if (BuildConfig.DEBUG) {
                     Log.v(TAG, "CONNECTIVITY_ACTION: " + isConnected);
                 }
+                // addresses may differ from a network to another (internal DNS)
+                DnsCache.instance().clear();
                 listener.onNetworkStateChanged(isConnected);
             } else {
                 if (BuildConfig.DEBUG) {
@@ -83,6 +92,11 @@ public class NetworkBroadcastReceiver extends BroadcastReceiver {
         void onSiteStartRefresh(SiteSettings siteSettings);
         void onSiteEndRefresh(SiteSettings siteSettings, SiteCall siteCall);
 
+        /**
+         * @param siteIds ids of sites whose calls were written, from then on in statistics read from database
+         */
+        void onCallsWritten(long[] siteIds);
+
         void onFaviconUpdated(SiteSettings siteSettings, Bitmap favicon);
         void onNetworkStateChanged(boolean hasConnectivity);
     }
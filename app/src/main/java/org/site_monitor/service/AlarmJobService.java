@@ -39,6 +39,7 @@ import org.site_monitor.util.NotificationUtil;
 import java.sql.SQLException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import androidx.core.app.NotificationCompat;
 
@@ -67,6 +68,8 @@ public class AlarmJobService extends JobService {
             DBHelper dbHelper = DBHelper.getHelper(getApplicationContext());
             try {
                 DBSiteSettings siteSettingDao = dbHelper.getDBSiteSettings();
+                List<SiteSettings> siteSettingsList = siteSettingDao.queryForAll();
+                Map<Long, SiteCall> previousCalls = NetworkService.lastCallsOf(siteSettingsList);
                 new CallSiteTask(getApplicationContext(), () -> new TaskCallbackDefault() {
                     @Override
                     public void onPostExecute(Object o, Object o2) {
@@ -77,7 +80,7 @@ public class AlarmJobService extends JobService {
                                 failsPairs.add(siteResult);
                             }
                         }
-                        String notificationMessage = NetworkService.performNotifyMessage(failsPairs, getApplicationContext());
+                        String notificationMessage = NetworkService.performNotifyMessage(failsPairs, previousCalls, getApplicationContext());
                         if (notificationMessage != null) {
                             PendingIntent pendingIntent = PendingIntent.getActivity(getApplicationContext(), 0, new Intent(getApplicationContext(), MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
                             NotificationCompat.Builder notificationBuilder = NotificationUtil.build(getApplicationContext(), failsPairs.size() + " " + getString(R.string.state_unreachable), notificationMessage, pendingIntent);
@@ -86,14 +89,11 @@ public class AlarmJobService extends JobService {
                         alarmUtil.updateNextAlarmDate(getApplicationContext());
                         jobFinished(params, true);
                     }
-                }).execute(siteSettingDao.queryForAll().toArray(new SiteSettings[]{}));
+                }).execute(NetworkService.sitesToCall(siteSettingDao, siteSettingsList).toArray(new SiteSettings[]{}));
             } catch (SQLException e) {
                 Log.e(TAG, "onHandleWork", e);
             } finally {
-                if (dbHelper != null) {
-                    dbHelper.release();
-                }
-                PurgeDbService.enqueueWork(getApplicationContext(), PurgeDbService.class, JobEnum.PURGE_DB.ordinal(), PurgeDbService.intent((getApplicationContext())));
+                PurgeDbService.schedule(getApplicationContext());
             }
         }).start();
         return true;
@@ -53,10 +53,6 @@ public class FavIconService extends JobIntentService {
             }
         } catch (SQLException e) {
             Log.e(TAG, "onHandleWork", e);
-        } finally {
-            if (dbHelper != null) {
-                dbHelper.release();
-            }
         }
     }
 
@@ -75,7 +71,7 @@ public class FavIconService extends JobIntentService {
         ByteArrayOutputStream blob = new ByteArrayOutputStream();
         favicon.compress(Bitmap.CompressFormat.PNG, 0 /* Ignored for PNGs */, blob);
         siteSettings.setFavicon(blob.toByteArray());
-        siteSettingDao.update(siteSettings);
+        siteSettingDao.updateFavicon(siteSettings);
         BroadcastUtil.broadcast(this, ACTION_FAVICON_UPDATED, siteSettings, BroadcastUtil.EXTRA_FAVICON, favicon);
     }
 }
@@ -1,5 +1,5 @@
 package org.site_monitor.service;
 
 public enum JobEnum {
-    CHECK_SITES_JS, CHECK_SITES, LOAD_FAVICO, PURGE_DB
+    CHECK_SITES_JS, CHECK_SITES, LOAD_FAVICO, PURGE_DB, PURGE_DB_CHARGING
 }
@@ -32,19 +32,26 @@ import org.site_monitor.activity.PrefSettingsActivity;
 import org.site_monitor.model.bo.NetworkCallResult;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.db.DBCallBatch;
+import org.site_monitor.model.db.DBCallRollup;
 import org.site_monitor.model.db.DBHelper;
+import org.site_monitor.model.db.DBIncident;
 import org.site_monitor.model.db.DBSiteCall;
 import org.site_monitor.model.db.DBSiteSettings;
+import org.site_monitor.model.db.DBWriter;
 import org.site_monitor.util.BroadcastUtil;
-import org.site_monitor.util.NetworkUtil;
+import org.site_monitor.util.CircuitBreaker;
 import org.site_monitor.util.NotificationUtil;
+import org.site_monitor.util.SiteCheckEngine;
 import org.site_monitor.widget.WidgetManager;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
@@ -58,10 +65,11 @@ public class NetworkService extends JobIntentService {
 
     public static final String ACTION_SITE_START_REFRESH = "org.site_monitor.service.action.SITE_START_REFRESH";
     public static final String ACTION_SITE_END_REFRESH = "org.site_monitor.service.action.SITE_END_REFRESH";
+    // sent once calls are written, statistics read from database then include them
+    public static final String ACTION_CALLS_WRITTEN = "org.site_monitor.service.action.CALLS_WRITTEN";
     public static final String REQUEST_REFRESH_SITES = "refreshSites";
     public static final String COMA = ",";
     private static final String TAG = NetworkService.class.getSimpleName();
-    private final NetworkUtil networkUtil = new NetworkUtil();
 
     /**
      * @param context to pass in the intent
@@ -71,6 +79,28 @@ public class NetworkService extends JobIntentService {
         return new Intent(context, NetworkService.class).setAction(REQUEST_REFRESH_SITES);
     }
 
+    /**
+     * @return listener refreshing widgets and broadcasting {@link #ACTION_CALLS_WRITTEN} with ids of sites of written calls
+     */
+    public static DBCallBatch.Listener callsWrittenListener(final Context context) {
+        return new DBCallBatch.Listener() {
+            @Override
+            public void onFlush(List<SiteCall> siteCalls) {
+                WidgetManager.refresh(context);
+                Set<Long> ids = new LinkedHashSet<>();
+                for (SiteCall siteCall : siteCalls) {
+                    ids.add(siteCall.getSiteSettings().getId());
+                }
+                long[] siteIds = new long[ids.size()];
+                int i = 0;
+                for (Long id : ids) {
+                    siteIds[i++] = id;
+                }
+                BroadcastUtil.broadcast(context, ACTION_CALLS_WRITTEN, BroadcastUtil.EXTRA_SITE_IDS, siteIds);
+            }
+        };
+    }
+
     public static void enqueueCheckSitesWork(@NonNull Context context) {
         NetworkService.enqueueWork(context, NetworkService.class, JobEnum.CHECK_SITES.ordinal(), intentToCheckSites(context));
     }
@@ -103,38 +133,48 @@ public class NetworkService extends JobIntentService {
             DBSiteSettings siteSettingDao = dbHelper.getDBSiteSettings();
             if (intent.getAction().equals(REQUEST_REFRESH_SITES)) {
                 DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
-                refreshSites(siteSettingDao, dbSiteCall);
+                refreshSites(dbHelper.getWriter(), siteSettingDao, dbSiteCall, dbHelper.getDBCallRollup(), dbHelper.getDBIncident());
             }
         } catch (SQLException e) {
             Log.e(TAG, "onHandleWork", e);
-        } finally {
-            if (dbHelper != null) {
-                dbHelper.release();
-            }
         }
     }
 
-    public void refreshSites(DBSiteSettings siteSettingDao, DBSiteCall dbSiteCall) throws SQLException {
-        List<SiteSettings> siteSettingList = siteSettingDao.queryForAll();
-        List<Pair<SiteSettings, SiteCall>> failsPairs = new LinkedList<>();
+    /**
+     * Checks all sites but those with an open circuit ({@link CircuitBreaker}), saves calls with status and circuit of sites then notifies fails.
+     */
+    public void refreshSites(DBWriter writer, final DBSiteSettings siteSettingDao, final DBSiteCall dbSiteCall, final DBCallRollup dbCallRollup,
+                             final DBIncident dbIncident) throws SQLException {
+        List<SiteSettings> allSiteSettings = siteSettingDao.queryForAll();
+        Map<Long, SiteCall> previousCalls = lastCallsOf(allSiteSettings);
+        List<SiteSettings> siteSettingList = sitesToCall(siteSettingDao, allSiteSettings);
+        final List<Pair<SiteSettings, SiteCall>> failsPairs = new LinkedList<>();
         if (BuildConfig.DEBUG) {
             Log.d(TAG, "action: " + REQUEST_REFRESH_SITES + " nbSites: " + siteSettingList.size());
         }
-        for (SiteSettings siteSettings : siteSettingList) {
-            if (BuildConfig.DEBUG) {
-                Log.v(TAG, "call: " + siteSettings);
-            }
-            BroadcastUtil.broadcast(this, ACTION_SITE_START_REFRESH, siteSettings);
-            SiteCall siteCall = networkUtil.buildHeadHttpConnectionThenDoCall(this, siteSettings);
-            siteCall.setSiteSettings(siteSettings);
-            BroadcastUtil.broadcast(this, ACTION_SITE_END_REFRESH, siteSettings, siteCall);
+        // widgets and screens read database, refresh them as soon as results are written
+        final DBCallBatch callBatch = new DBCallBatch(writer, dbSiteCall, siteSettingDao, dbCallRollup, dbIncident, callsWrittenListener(this));
+        try {
+            SiteCheckEngine.fromPreferences(this).check(this, siteSettingList, new SiteCheckEngine.Listener() {
+                @Override
+                public void onCheckStart(SiteSettings siteSettings) {
+                    BroadcastUtil.broadcast(NetworkService.this, ACTION_SITE_START_REFRESH, siteSettings);
+                }
 
-            if (siteCall.getResult() == NetworkCallResult.FAIL) {
-                failsPairs.add(new Pair<>(siteSettings, siteCall));
-            }
-            dbSiteCall.create(siteCall);
+                @Override
+                public void onCheckEnd(SiteSettings siteSettings, SiteCall siteCall) {
+                    siteCall.setSiteSettings(siteSettings);
+                    BroadcastUtil.broadcast(NetworkService.this, ACTION_SITE_END_REFRESH, siteSettings, siteCall);
+                    if (siteCall.getResult() == NetworkCallResult.FAIL) {
+                        failsPairs.add(new Pair<>(siteSettings, siteCall));
+                    }
+                    callBatch.add(siteCall);
+                }
+            });
+        } finally {
+            callBatch.close();
         }
-        String notificationMessage = performNotifyMessage(failsPairs, this);
+        String notificationMessage = performNotifyMessage(failsPairs, previousCalls, this);
         if (notificationMessage != null) {
             PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
             NotificationCompat.Builder notificationBuilder = NotificationUtil.build(this, failsPairs.size() + " " + getString(R.string.state_unreachable), notificationMessage, pendingIntent);
@@ -143,7 +183,49 @@ public class NetworkService extends JobIntentService {
         WidgetManager.refresh(this);
     }
 
-    public static String performNotifyMessage(List<Pair<SiteSettings, SiteCall>> failsPairs, Context context) {
+    /**
+     * Filter of cycles: skips sites with an open circuit ({@link CircuitBreaker}) and saves the skip on them.
+     * Checks of sites explicitly asked by user are probes and must not be filtered.
+     *
+     * @param siteSettingsList sites of cycle
+     * @return sites to call this cycle
+     */
+    public static List<SiteSettings> sitesToCall(DBSiteSettings siteSettingDao, List<SiteSettings> siteSettingsList) throws SQLException {
+        List<SiteSettings> sitesToCall = new LinkedList<>();
+        long now = System.currentTimeMillis();
+        for (SiteSettings siteSettings : siteSettingsList) {
+            if (CircuitBreaker.allowsCall(siteSettings, now)) {
+                sitesToCall.add(siteSettings);
+            } else {
+                CircuitBreaker.skip(siteSettings);
+                siteSettingDao.incrementSkippedCycles(siteSettings);
+            }
+        }
+        return sitesToCall;
+    }
+
+    /**
+     * Must be called before sites are checked, checks update status of sites.
+     *
+     * @param siteSettingsList sites
+     * @return last call of each site called, from its status, by site id
+     */
+    public static Map<Long, SiteCall> lastCallsOf(List<SiteSettings> siteSettingsList) {
+        Map<Long, SiteCall> lastCalls = new HashMap<>(siteSettingsList.size());
+        for (SiteSettings siteSettings : siteSettingsList) {
+            if (siteSettings.getLastResult() != null) {
+                lastCalls.put(siteSettings.getId(), new SiteCall(siteSettings.getLastCallDate(), siteSettings.getLastResult()));
+            }
+        }
+        return lastCalls;
+    }
+
+    /**
+     * @param failsPairs    sites in fail with their call
+     * @param previousCalls last call of each site before its call in fail, by site id
+     * @return names of sites in fail if at least one must be notified, null otherwise
+     */
+    public static String performNotifyMessage(List<Pair<SiteSettings, SiteCall>> failsPairs, Map<Long, SiteCall> previousCalls, Context context) {
         boolean atLeastOneToNotify = false;
         if (failsPairs.isEmpty()) {
             return null;
@@ -159,12 +241,10 @@ public class NetworkService extends JobIntentService {
             sb.append(pair.first.getName());
             if (pair.first.isNotificationEnabled()) {
                 if (limitToNewFail) {
-                    if (pair.first.getSiteCalls().isEmpty()) {
+                    SiteCall previousCall = previousCalls.get(pair.first.getId());
+                    if (previousCall == null) {
                         atLeastOneToNotify = true;
                     } else {
-                        List<SiteCall> siteCalls = new ArrayList<>(pair.first.getSiteCalls());
-                        Collections.sort(siteCalls, SiteCall.DESC_DATE);
-                        SiteCall previousCall = siteCalls.get(0);
                         if (previousCall.getResult() == NetworkCallResult.SUCCESS) {
                             atLeastOneToNotify = true;
                         }
@@ -13,79 +13,124 @@
  * limitations under the License.
  */
 
+
 package org.site_monitor.service;
 
-import android.app.IntentService;
+import android.app.AlarmManager;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
 import android.content.Context;
-import android.content.Intent;
+import android.preference.PreferenceManager;
 import android.util.Log;
 
 import org.site_monitor.BuildConfig;
+import org.site_monitor.activity.PrefSettingsActivity;
+import org.site_monitor.model.db.DBCallRollup;
 import org.site_monitor.model.db.DBHelper;
-import org.site_monitor.model.db.DBSiteCall;
+import org.site_monitor.model.db.DBRetention;
 
 import java.sql.SQLException;
-import java.util.Calendar;
-
-import androidx.annotation.NonNull;
-import androidx.core.app.JobIntentService;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * An {@link IntentService} subclass for handling asynchronous task requests in
- * a service on a separate handler thread.
+ * Runs retention of history once a day, when device is idle or charging: a daily job waits for each condition,
+ * first one to run in a day purges, see {@link DBRetention}.
  */
-public class PurgeDbService extends JobIntentService {
+public class PurgeDbService extends JobService {
 
-    private static final String ACTION_PURGE_CALLS = "org.site_monitor.service.action.PURGE_CALLS";
     private static final String TAG = PurgeDbService.class.getSimpleName();
-
-    public static Intent intent(Context context) {
-        return new Intent(context, PurgeDbService.class).setAction(ACTION_PURGE_CALLS);
-    }
+    private static final String KEY_LAST_PURGE = "org.site_monitor.lastPurge";
+    // idle and charging jobs may start together, one purge runs at once
+    private static final AtomicBoolean PURGING = new AtomicBoolean();
+    // run of each job, by job id: stop of a job cancels its own run only
+    private final Map<Integer, DBRetention> retentions = new ConcurrentHashMap<>();
 
     /**
-     * Called serially for each work dispatched to and processed by the service.  This
-     * method is called on a background thread, so you can do long blocking operations
-     * here.  Upon returning, that work will be considered complete and either the next
-     * pending work dispatched here or the overall service destroyed now that it has
-     * nothing else to do.
-     * <p>
-     * <p>Be aware that when running as a job, you are limited by the maximum job execution
-     * time and any single or total sequential items of work that exceeds that limit will
-     * cause the service to be stopped while in progress and later restarted with the
-     * last unfinished work.  (There is currently no limit on execution duration when
-     * running as a pre-O plain Service.)</p>
+     * Schedules daily purge jobs not scheduled yet, jobs persist across reboots.
      *
-     * @param intent The intent describing the work to now be processed.
+     * @param context
      */
-    @Override
-    protected void onHandleWork(@NonNull Intent intent) {
-        final String action = intent.getAction();
-        if (action == null) {
-            if (BuildConfig.DEBUG) {
-                Log.e(TAG, "onHandleIntent: no action");
-            }
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
             return;
         }
-        if (ACTION_PURGE_CALLS.equals(action)) {
-            purgeCalls();
+        boolean idleScheduled = false;
+        boolean chargingScheduled = false;
+        for (JobInfo jobInfo : jobScheduler.getAllPendingJobs()) {
+            idleScheduled |= jobInfo.getId() == JobEnum.PURGE_DB.ordinal();
+            chargingScheduled |= jobInfo.getId() == JobEnum.PURGE_DB_CHARGING.ordinal();
+        }
+        ComponentName serviceComponent = new ComponentName(context, PurgeDbService.class);
+        if (!idleScheduled) {
+            schedule(jobScheduler, new JobInfo.Builder(JobEnum.PURGE_DB.ordinal(), serviceComponent).setRequiresDeviceIdle(true));
+        }
+        if (!chargingScheduled) {
+            schedule(jobScheduler, new JobInfo.Builder(JobEnum.PURGE_DB_CHARGING.ordinal(), serviceComponent).setRequiresCharging(true));
         }
     }
 
-    private void purgeCalls() {
-        try {
-            DBHelper dbHelper = DBHelper.getHelper(this);
-            DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.MONTH, -1);
-            int nbDeleted = dbSiteCall.removeCallsBefore(calendar.getTime());
+    private static void schedule(JobScheduler jobScheduler, JobInfo.Builder builder) {
+        builder.setPeriodic(AlarmManager.INTERVAL_DAY);
+        builder.setPersisted(true);
+        if (jobScheduler.schedule(builder.build()) == JobScheduler.RESULT_FAILURE && BuildConfig.DEBUG) {
+            Log.e(TAG, "failed to schedule purge");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        if (!PURGING.compareAndSet(false, true)) {
             if (BuildConfig.DEBUG) {
-                Log.i(TAG, "purgeCalls: " + nbDeleted + " before: " + calendar.getTime());
+                Log.d(TAG, "onStartJob: purge already running");
             }
-        } catch (SQLException e) {
+            return false;
+        }
+        long lastPurge = SharedPreferencesService.getLongNow(getApplicationContext(), KEY_LAST_PURGE);
+        if (DBCallRollup.dayOf(new Date(lastPurge)) == DBCallRollup.dayOf(new Date())) {
+            PURGING.set(false);
             if (BuildConfig.DEBUG) {
-                Log.e(TAG, "purgeCalls", e);
+                Log.d(TAG, "onStartJob: already purged today");
+            }
+            return false;
+        }
+        final DBRetention retention = new DBRetention(DBHelper.getHelper(getApplicationContext()));
+        retentions.put(params.getJobId(), retention);
+        new Thread(() -> {
+            try {
+                boolean packHistory = PreferenceManager.getDefaultSharedPreferences(getApplicationContext()).getBoolean(PrefSettingsActivity.PACK_HISTORY, false);
+                retention.run(packHistory);
+                if (!retention.isCancelled()) {
+                    SharedPreferencesService.saveNow(getApplicationContext(), KEY_LAST_PURGE, System.currentTimeMillis());
+                }
+            } catch (SQLException e) {
+                if (BuildConfig.DEBUG) {
+                    Log.e(TAG, "purge", e);
+                }
+            } finally {
+                retentions.remove(params.getJobId());
+                PURGING.set(false);
+                jobFinished(params, false);
             }
+        }).start();
+        return true;
+    }
+
+    /**
+     * Device left idle or charging: purge stops after current batch, rest is done by next run.
+     */
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        DBRetention retention = retentions.get(params.getJobId());
+        if (retention != null) {
+            retention.cancel();
         }
+        return false;
     }
 }
@@ -22,14 +22,14 @@ import android.util.Pair;
 import org.site_monitor.BuildConfig;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.db.DBCallBatch;
 import org.site_monitor.model.db.DBHelper;
-import org.site_monitor.model.db.DBSiteCall;
 import org.site_monitor.service.NetworkService;
 import org.site_monitor.util.BroadcastUtil;
-import org.site_monitor.util.NetworkUtil;
-import org.site_monitor.widget.WidgetManager;
+import org.site_monitor.util.SiteCheckEngine;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -39,7 +39,6 @@ import java.util.List;
  */
 public class CallSiteTask extends AsyncTaskWithCallback<SiteSettings, Void, List<Pair<SiteSettings, SiteCall>>> {
     private static final String TAG = "CallSiteTask";
-    private NetworkUtil networkUtil = new NetworkUtil();
     private Context context;
 
     public CallSiteTask(Context context, TaskCallback.Provider callbackProvider) {
@@ -55,24 +54,38 @@ public class CallSiteTask extends AsyncTaskWithCallback<SiteSettings, Void, List
             }
             return Collections.emptyList();
         }
-        List<Pair<SiteSettings, SiteCall>> results = new LinkedList<Pair<SiteSettings, SiteCall>>();
-        for (SiteSettings siteSettings : params) {
-            if (BuildConfig.DEBUG) {
-                Log.d(TAG, "doInBackground: " + siteSettings);
-            }
-            BroadcastUtil.broadcast(context, NetworkService.ACTION_SITE_START_REFRESH, siteSettings);
-            SiteCall siteCall = networkUtil.buildHeadHttpConnectionThenDoCall(context, siteSettings);
-            siteCall.setSiteSettings(siteSettings);
-            DBHelper dbHelper = DBHelper.getHelper(context);
-            try {
-                DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
-                dbSiteCall.create(siteCall);
-                WidgetManager.refresh(context);
-            } catch (SQLException e) {
-                Log.e(TAG, "doInBackground", e);
-            }
-            BroadcastUtil.broadcast(context, NetworkService.ACTION_SITE_END_REFRESH, siteSettings, siteCall);
-            results.add(new Pair<SiteSettings, SiteCall>(siteSettings, siteCall));
+        final List<Pair<SiteSettings, SiteCall>> results = new LinkedList<Pair<SiteSettings, SiteCall>>();
+        DBHelper dbHelper = DBHelper.getHelper(context);
+        final DBCallBatch callBatch;
+        try {
+            callBatch = new DBCallBatch(dbHelper.getWriter(), dbHelper.getDBSiteCall(), dbHelper.getDBSiteSettings(), dbHelper.getDBCallRollup(), dbHelper.getDBIncident(),
+                    NetworkService.callsWrittenListener(context));
+        } catch (SQLException e) {
+            Log.e(TAG, "doInBackground", e);
+            return Collections.emptyList();
+        }
+        try {
+            SiteCheckEngine.fromPreferences(context).check(context, Arrays.asList(params), new SiteCheckEngine.Listener() {
+                @Override
+                public void onCheckStart(SiteSettings siteSettings) {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "doInBackground: " + siteSettings);
+                    }
+                    BroadcastUtil.broadcast(context, NetworkService.ACTION_SITE_START_REFRESH, siteSettings);
+                }
+
+                @Override
+                public void onCheckEnd(SiteSettings siteSettings, SiteCall siteCall) {
+                    siteCall.setSiteSettings(siteSettings);
+                    // scheduled cycles give sites filtered by NetworkService.sitesToCall, other checks are explicit and probe circuit of site,
+                    // batch updates status and circuit of site with call
+                    callBatch.add(siteCall);
+                    BroadcastUtil.broadcast(context, NetworkService.ACTION_SITE_END_REFRESH, siteSettings, siteCall);
+                    results.add(new Pair<SiteSettings, SiteCall>(siteSettings, siteCall));
+                }
+            });
+        } finally {
+            callBatch.close();
         }
         return results;
     }
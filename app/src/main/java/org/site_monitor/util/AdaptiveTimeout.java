@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.db.DBHelper;
+import org.site_monitor.model.db.DBSiteCall;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connect and read timeout of each site, derived from successful response times of its {@link RecentCalls} (p99 x {@link #FACTOR}
+ * clamped to [{@link #MIN_TIMEOUT}, {@link #MAX_TIMEOUT}]), so a dead fast host fails in a few hundred millis.<br/>
+ * Timeout set on site ({@link SiteSettings#getTimeout()}) always wins, {@link #MAX_TIMEOUT} applies until enough history is known.
+ */
+public class AdaptiveTimeout {
+
+    public static final int MIN_SAMPLES = 10;
+    public static final double PERCENTILE = 0.99;
+    public static final double FACTOR = 3;
+    public static final int MIN_TIMEOUT = 500;
+    public static final int MAX_TIMEOUT = NetworkUtil.TIMEOUT_10;
+    private static final String TAG = AdaptiveTimeout.class.getSimpleName();
+
+    private AdaptiveTimeout() {
+    }
+
+    /**
+     * @param context
+     * @param sites   to get timeout of
+     * @return timeout in millis of each site, {@link #MAX_TIMEOUT} for all if history can't be read
+     */
+    public static Map<SiteSettings, Integer> timeoutsOf(Context context, Collection<SiteSettings> sites) {
+        Map<SiteSettings, Integer> timeouts = new HashMap<>();
+        DBHelper dbHelper = DBHelper.getHelper(context);
+        try {
+            DBSiteCall dbSiteCall = dbHelper.getDBSiteCall();
+            RecentCalls recentCalls = RecentCalls.instance();
+            for (SiteSettings siteSettings : sites) {
+                long[] responseTimes = siteSettings.getTimeout() == null ? recentCalls.of(dbSiteCall, siteSettings).successResponseTimes() : new long[0];
+                timeouts.put(siteSettings, timeoutOf(siteSettings, responseTimes));
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "timeoutsOf", e);
+        }
+        return timeouts;
+    }
+
+    /**
+     * @param siteSettings  site, its own timeout wins if set
+     * @param responseTimes recent successful response times in millis
+     * @return timeout in millis
+     */
+    public static int timeoutOf(SiteSettings siteSettings, long[] responseTimes) {
+        if (siteSettings.getTimeout() != null) {
+            return siteSettings.getTimeout();
+        }
+        if (responseTimes.length < MIN_SAMPLES) {
+            return MAX_TIMEOUT;
+        }
+        long timeout = Math.round(percentile(responseTimes, PERCENTILE) * FACTOR);
+        return (int) Math.max(MIN_TIMEOUT, Math.min(MAX_TIMEOUT, timeout));
+    }
+
+    /**
+     * @param values   not empty
+     * @param quantile in ]0, 1]
+     * @return nearest-rank percentile of values
+     */
+    static long percentile(long[] values, double quantile) {
+        long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -223,8 +223,6 @@ public class AlarmUtil {
         } catch (SQLException e) {
             Log.e(TAG, "countSites", e);
             return -1;
-        } finally {
-            dbHelper.release();
         }
     }
 
@@ -33,6 +33,7 @@ public class BroadcastUtil {
     public static final String EXTRA_CALL = "org.site_monitor.service.extra.CALL";
     public static final String EXTRA_ALARM = "org.site_monitor.service.extra.ALARM";
     public static final String EXTRA_FAVICON = "org.site_monitor.service.extra.FAVICON";
+    public static final String EXTRA_SITE_IDS = "org.site_monitor.service.extra.SITE_IDS";
 
     /**
      * Broadcasts siteSettings for given action as EXTRA_SITE
@@ -72,6 +73,19 @@ public class BroadcastUtil {
         LocalBroadcastManager.getInstance(context).sendBroadcast(localIntent);
     }
 
+    /**
+     * Broadcasts longs for given action as extraName
+     *
+     * @param context
+     * @param action
+     * @param extraName
+     * @param values
+     */
+    public static void broadcast(Context context, String action, String extraName, long[] values) {
+        Intent localIntent = new Intent(action).putExtra(extraName, values);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(localIntent);
+    }
+
     /**
      * Broadcasts siteSettings for given action as EXTRA_SITE
      *
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Gives up a call running on another thread: blocking connects and reads ignore interrupts, so connection in use is closed, they then fail.
+ */
+class CallCancellation {
+
+    private static final String TAG = CallCancellation.class.getSimpleName();
+    static final String CANCELLED = "call cancelled";
+
+    private Closeable connection;
+    private boolean cancelled;
+
+    /**
+     * Sets connection closed on cancel, until detached.
+     *
+     * @throws InterruptedIOException if call was cancelled, connection is then closed
+     */
+    void attach(Closeable connection) throws InterruptedIOException {
+        synchronized (this) {
+            if (!cancelled) {
+                this.connection = connection;
+                return;
+            }
+        }
+        close(connection);
+        throw new InterruptedIOException(CANCELLED);
+    }
+
+    /**
+     * Connection is done with, it may be kept alive for other calls.
+     */
+    synchronized void detach() {
+        connection = null;
+    }
+
+    /**
+     * Closes connection in use if any, connections attached afterwards are closed at once.
+     */
+    void cancel() {
+        Closeable inUse;
+        synchronized (this) {
+            cancelled = true;
+            inUse = connection;
+            connection = null;
+        }
+        if (inUse != null) {
+            close(inUse);
+        }
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static void close(Closeable connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            Log.w(TAG, "close", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import org.site_monitor.model.bo.SiteCall;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of a call (DNS, TCP connect, TLS handshake, time to first byte), measured with a monotonic clock.<br/>
+ * Durations of a phase are summed over redirect hops, a phase never done stays unknown.
+ */
+class CallPhases {
+
+    enum Phase {
+        DNS, CONNECT, TLS, TTFB
+    }
+
+    private static final long UNKNOWN = -1;
+
+    private final long[] nanos = {UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN};
+
+    /**
+     * @return monotonic time to give back to {@link #since(Phase, long)}
+     */
+    static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds time elapsed since start to phase.
+     *
+     * @param phase measured
+     * @param start as given by {@link #now()} when phase began
+     */
+    void since(Phase phase, long start) {
+        add(phase, now() - start);
+    }
+
+    void add(Phase phase, long durationNanos) {
+        int index = phase.ordinal();
+        nanos[index] = (nanos[index] == UNKNOWN ? 0 : nanos[index]) + Math.max(0, durationNanos);
+    }
+
+    /**
+     * @return duration of phase in millis, null if phase was never done
+     */
+    Long millis(Phase phase) {
+        long value = nanos[phase.ordinal()];
+        return value == UNKNOWN ? null : TimeUnit.NANOSECONDS.toMillis(value);
+    }
+
+    void clear() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = UNKNOWN;
+        }
+    }
+
+    /**
+     * Sets phases durations of siteCall.
+     */
+    void applyTo(SiteCall siteCall) {
+        siteCall.setDnsTime(millis(Phase.DNS));
+        siteCall.setConnectTime(millis(Phase.CONNECT));
+        siteCall.setHandshakeTime(millis(Phase.TLS));
+        siteCall.setTtfbTime(millis(Phase.TTFB));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import org.site_monitor.model.bo.CallError;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Packed format of the calls of a site in a day: date, result, error, response code, response time and exception of each call.<br/>
+ * Header holds version, count of calls, dictionaries of exceptions and response codes and date of first call.
+ * Each call is a flags byte (2 bits of result, has code, has exception, 4 bits of error), then var longs of time since previous call,
+ * response time, and dictionary indexes of code and exception if any. Version 1 has no error.
+ */
+public class CallSegmentCodec {
+
+    private static final int VERSION = 2;
+    private static final int RESULT_MASK = 0x03;
+    private static final int HAS_CODE = 0x04;
+    private static final int HAS_EXCEPTION = 0x08;
+    // error ordinal + 1, 0 if none
+    private static final int ERROR_SHIFT = 4;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final NetworkCallResult[] RESULTS = NetworkCallResult.values();
+    private static final CallError[] ERRORS = CallError.values();
+
+    private CallSegmentCodec() {
+    }
+
+    /**
+     * @param siteCalls calls of a day, any order
+     * @return packed calls, by date
+     */
+    public static byte[] encode(List<SiteCall> siteCalls) {
+        List<SiteCall> sorted = new ArrayList<>(siteCalls);
+        Collections.sort(sorted, SiteCall.ASC_DATE);
+        Map<String, Integer> exceptions = new HashMap<>();
+        List<String> exceptionList = new ArrayList<>();
+        Map<Integer, Integer> codes = new HashMap<>();
+        List<Integer> codeList = new ArrayList<>();
+        for (SiteCall siteCall : sorted) {
+            if (siteCall.getException() != null && !exceptions.containsKey(siteCall.getException())) {
+                exceptions.put(siteCall.getException(), exceptionList.size());
+                exceptionList.add(siteCall.getException());
+            }
+            if (siteCall.getResponseCode() != null && !codes.containsKey(siteCall.getResponseCode())) {
+                codes.put(siteCall.getResponseCode(), codeList.size());
+                codeList.add(siteCall.getResponseCode());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sorted.size() * 4);
+        out.write(VERSION);
+        writeVarLong(out, sorted.size());
+        writeVarLong(out, exceptionList.size());
+        for (String exception : exceptionList) {
+            byte[] bytes = exception.getBytes(UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        writeVarLong(out, codeList.size());
+        for (Integer code : codeList) {
+            writeVarLong(out, code);
+        }
+        long previousTime = sorted.isEmpty() ? 0 : sorted.get(0).getDate().getTime();
+        writeVarLong(out, previousTime);
+        for (SiteCall siteCall : sorted) {
+            int flags = siteCall.getResult().ordinal();
+            if (siteCall.getResponseCode() != null) {
+                flags |= HAS_CODE;
+            }
+            if (siteCall.getException() != null) {
+                flags |= HAS_EXCEPTION;
+            }
+            if (siteCall.getError() != null) {
+                flags |= (siteCall.getError().ordinal() + 1) << ERROR_SHIFT;
+            }
+            out.write(flags);
+            long time = siteCall.getDate().getTime();
+            writeVarLong(out, time - previousTime);
+            previousTime = time;
+            writeVarLong(out, siteCall.getResponseTime() == null ? 0 : siteCall.getResponseTime());
+            if (siteCall.getResponseCode() != null) {
+                writeVarLong(out, codes.get(siteCall.getResponseCode()));
+            }
+            if (siteCall.getException() != null) {
+                writeVarLong(out, exceptions.get(siteCall.getException()));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param data from {@link #encode(List)}
+     * @return reader decoding one call at a time
+     */
+    public static Reader read(byte[] data) {
+        return new Reader(data);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Decodes calls in date order, only dictionaries are read upfront.
+     */
+    public static class Reader implements Iterator<SiteCall> {
+
+        private final byte[] data;
+        private final int count;
+        private final String[] exceptions;
+        private final int[] codes;
+        private int position;
+        private int read;
+        private long previousTime;
+
+        private Reader(byte[] data) {
+            this.data = data;
+            int version = data[position++];
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("unknown segment version: " + version);
+            }
+            count = (int) readVarLong();
+            exceptions = new String[(int) readVarLong()];
+            for (int i = 0; i < exceptions.length; i++) {
+                int length = (int) readVarLong();
+                exceptions[i] = new String(data, position, length, UTF_8);
+                position += length;
+            }
+            codes = new int[(int) readVarLong()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = (int) readVarLong();
+            }
+            previousTime = readVarLong();
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return read < count;
+        }
+
+        @Override
+        public SiteCall next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int flags = data[position++] & 0xFF;
+            previousTime += readVarLong();
+            long responseTime = readVarLong();
+            Integer responseCode = (flags & HAS_CODE) != 0 ? codes[(int) readVarLong()] : null;
+            SiteCall siteCall = new SiteCall(new Date(previousTime), RESULTS[flags & RESULT_MASK], responseCode, responseTime, null);
+            if ((flags & HAS_EXCEPTION) != 0) {
+                siteCall.setException(exceptions[(int) readVarLong()]);
+            }
+            int error = flags >>> ERROR_SHIFT;
+            if (error > 0) {
+                siteCall.setError(ERRORS[error - 1]);
+            }
+            read++;
+            return siteCall;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
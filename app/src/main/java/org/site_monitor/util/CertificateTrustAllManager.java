@@ -27,7 +27,6 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
@@ -43,7 +42,12 @@ public class CertificateTrustAllManager implements X509TrustManager {
     private static final X509TrustManager INSTANCE = new CertificateTrustAllManager();
     private static final String TAG = CertificateTrustAllManager.class.getSimpleName();
 
-    public static SSLSocketFactory sslSocketFactory() {
+    /**
+     * Builds a new context at each call, use shared one from {@link TlsManager#sslContext(boolean)}.
+     *
+     * @return TLS context that trusts any certificate, or null if it can't be initialized
+     */
+    public static SSLContext sslContext() {
         try {
             TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
             KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
@@ -52,9 +56,9 @@ public class CertificateTrustAllManager implements X509TrustManager {
             TrustManager[] trustAllCertManagers = {INSTANCE};
             SSLContext sslContext = SSLContext.getInstance(TLS);
             sslContext.init(null, trustAllCertManagers, new SecureRandom());
-            return sslContext.getSocketFactory();
+            return sslContext;
         } catch (CertificateException | NoSuchAlgorithmException | KeyStoreException | KeyManagementException | IOException e) {
-            Log.e(TAG, "sslSocketFactory", e);
+            Log.e(TAG, "sslContext", e);
             return null;
         }
     }
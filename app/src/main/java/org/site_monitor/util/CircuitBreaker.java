@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import org.site_monitor.model.bo.CircuitState;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+
+/**
+ * Circuit breaker of scheduled checks, state is kept on each site.<br/>
+ * After {@link #FAILURE_THRESHOLD} failures in a row a site is open: cycles skip it until its wait is over, then it is half open
+ * and called once. Success closes it, failure opens it again for twice the previous wait ({@link #BASE_OPEN_TIME} to {@link #MAX_OPEN_TIME}).<br/>
+ * Skipped cycles are only counted, the count is set on next call of site.
+ */
+public class CircuitBreaker {
+
+    public static final int FAILURE_THRESHOLD = 5;
+    public static final long BASE_OPEN_TIME = 5 * TimeUtil.MINUTE_2_MILLISEC;
+    public static final long MAX_OPEN_TIME = 2 * 60 * TimeUtil.MINUTE_2_MILLISEC;
+
+    private CircuitBreaker() {
+    }
+
+    /**
+     * Moves an open site whose wait is over to half open.
+     *
+     * @param siteSettings site of cycle
+     * @param now          current time in millis
+     * @return true if site must be called this cycle, false if cycle must skip it
+     */
+    public static boolean allowsCall(SiteSettings siteSettings, long now) {
+        if (siteSettings.getCircuitState() != CircuitState.OPEN) {
+            return true;
+        }
+        if (siteSettings.getCircuitRetryAt() != null && now < siteSettings.getCircuitRetryAt()) {
+            return false;
+        }
+        siteSettings.setCircuitState(CircuitState.HALF_OPEN);
+        return true;
+    }
+
+    /**
+     * Counts a cycle that skipped site.
+     */
+    public static void skip(SiteSettings siteSettings) {
+        siteSettings.setSkippedCycles(siteSettings.getSkippedCycles() + 1);
+    }
+
+    /**
+     * Updates circuit of site with result of its call, and sets on call the count of cycles skipped before it.
+     *
+     * @param siteSettings site called
+     * @param siteCall     result of call
+     * @param now          current time in millis
+     * @return true if circuit of site changed and must be saved
+     */
+    public static boolean onCallEnd(SiteSettings siteSettings, SiteCall siteCall, long now) {
+        if (siteCall.getResult() == NetworkCallResult.NO_CONNECTIVITY) {
+            // says nothing about site
+            return false;
+        }
+        boolean changed = false;
+        if (siteSettings.getSkippedCycles() > 0) {
+            siteCall.setSkippedCycles(siteSettings.getSkippedCycles());
+            siteSettings.setSkippedCycles(0);
+            changed = true;
+        }
+        if (siteCall.getResult() == NetworkCallResult.SUCCESS) {
+            if (siteSettings.getCircuitState() != CircuitState.CLOSED || siteSettings.getConsecutiveFailures() > 0) {
+                siteSettings.setCircuitState(CircuitState.CLOSED);
+                siteSettings.setConsecutiveFailures(0);
+                siteSettings.setCircuitOpenings(0);
+                siteSettings.setCircuitRetryAt(null);
+                changed = true;
+            }
+            return changed;
+        }
+        siteSettings.setConsecutiveFailures(siteSettings.getConsecutiveFailures() + 1);
+        if (siteSettings.getCircuitState() == CircuitState.HALF_OPEN || siteSettings.getCircuitState() == CircuitState.OPEN) {
+            open(siteSettings, siteSettings.getCircuitOpenings() + 1, now);
+        } else if (siteSettings.getConsecutiveFailures() >= FAILURE_THRESHOLD) {
+            open(siteSettings, 1, now);
+        }
+        return true;
+    }
+
+    private static void open(SiteSettings siteSettings, int openings, long now) {
+        long openTime = Math.min(MAX_OPEN_TIME, BASE_OPEN_TIME << Math.min(openings - 1, 30));
+        siteSettings.setCircuitState(CircuitState.OPEN);
+        siteSettings.setCircuitOpenings(openings);
+        siteSettings.setCircuitRetryAt(now + openTime);
+    }
+}
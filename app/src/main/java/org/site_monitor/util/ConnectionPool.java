@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Idle keep-alive connections kept between checks, shared by the whole process.<br/>
+ * Connections are given back most recently used first and closed once idle longer than idle TTL or beyond max pool size.
+ */
+public class ConnectionPool {
+
+    public static final long DEFAULT_IDLE_TTL = TimeUtil.MINUTE_2_MILLISEC;
+    public static final int DEFAULT_MAX_IDLE = 8;
+    private static final String TAG = ConnectionPool.class.getSimpleName();
+    private static final ConnectionPool INSTANCE = new ConnectionPool();
+
+    // most recently released first
+    private final LinkedList<Connection> idle = new LinkedList<>();
+    private long idleTtl = DEFAULT_IDLE_TTL;
+    private int maxIdle = DEFAULT_MAX_IDLE;
+
+    private ConnectionPool() {
+    }
+
+    public static ConnectionPool instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param url        target of connection
+     * @param forceTrust true if connection trusts all certificates
+     * @return key of connections able to serve url
+     */
+    static String keyOf(URL url, boolean forceTrust) {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ":" + port + (forceTrust ? "/trust-all" : "");
+    }
+
+    /**
+     * @param idleTtl max time in millis a connection stays idle in pool
+     * @param maxIdle max count of idle connections in pool
+     */
+    public void configure(long idleTtl, int maxIdle) {
+        List<Connection> evicted;
+        synchronized (this) {
+            this.idleTtl = idleTtl;
+            this.maxIdle = Math.max(0, maxIdle);
+            evicted = evict(SystemClock.elapsedRealtime());
+        }
+        close(evicted);
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    public void evictAll() {
+        List<Connection> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(idle);
+            idle.clear();
+        }
+        close(evicted);
+    }
+
+    /**
+     * @param key as given by {@link #keyOf(URL, boolean)}
+     * @return most recently used idle connection for key, removed from pool, or null if none
+     */
+    Connection take(String key) {
+        List<Connection> evicted;
+        Connection taken = null;
+        synchronized (this) {
+            evicted = evict(SystemClock.elapsedRealtime());
+            Iterator<Connection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                Connection connection = iterator.next();
+                if (connection.key.equals(key)) {
+                    iterator.remove();
+                    taken = connection;
+                    break;
+                }
+            }
+        }
+        close(evicted);
+        return taken;
+    }
+
+    /**
+     * Gives back a connection that is at a response boundary and can serve a new request.
+     */
+    void release(Connection connection) {
+        List<Connection> evicted;
+        synchronized (this) {
+            connection.idleSince = SystemClock.elapsedRealtime();
+            idle.addFirst(connection);
+            evicted = evict(connection.idleSince);
+        }
+        close(evicted);
+    }
+
+    private List<Connection> evict(long now) {
+        List<Connection> evicted = new ArrayList<>();
+        Iterator<Connection> iterator = idle.iterator();
+        int kept = 0;
+        while (iterator.hasNext()) {
+            Connection connection = iterator.next();
+            if (kept >= maxIdle || now - connection.idleSince > idleTtl) {
+                iterator.remove();
+                evicted.add(connection);
+            } else {
+                kept++;
+            }
+        }
+        return evicted;
+    }
+
+    private static void close(List<Connection> connections) {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Open socket to a server, plain or TLS.
+     */
+    static class Connection {
+        final String key;
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        long idleSince;
+
+        Connection(String key, Socket socket) throws IOException {
+            this.key = key;
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Log.w(TAG, "close " + key, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.site_monitor.BuildConfig;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Name resolutions shared by the whole process, failures included.<br/>
+ * Hosts of a cycle are resolved in parallel when it starts ({@link #prefetch(Collection)}), so probes find their address here
+ * and name resolution time is reported apart instead of being paid one host at a time inside response time.<br/>
+ * Platform resolver doesn't give record TTLs, so entries live {@link #POSITIVE_TTL} (failures {@link #NEGATIVE_TTL}),
+ * then an expired address is still served up to {@link #STALE_TTL} if resolver fails meanwhile.<br/>
+ * An entry served from cache reports no resolution time: its call didn't pay one.
+ */
+public class DnsCache {
+
+    public static final long POSITIVE_TTL = 5 * TimeUtil.MINUTE_2_MILLISEC;
+    public static final long NEGATIVE_TTL = 30 * TimeUtil.SEC_2_MILLISEC;
+    // long enough to ride out a resolver hiccup, short enough not to probe a moved host at its old address for long
+    public static final long STALE_TTL = 10 * TimeUtil.MINUTE_2_MILLISEC;
+    private static final String TAG = DnsCache.class.getSimpleName();
+    private static final String THREAD_NAME = "dns-";
+    private static final int MAX_PREFETCH_THREADS = 8;
+    private static final DnsCache INSTANCE = new DnsCache();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private DnsCache() {
+    }
+
+    public static DnsCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Resolves given hosts in parallel, blocks until all are resolved or resolution timeout is reached.
+     *
+     * @param hosts server names to resolve
+     */
+    public void prefetch(Collection<String> hosts) {
+        if (hosts.isEmpty()) {
+            return;
+        }
+        purge();
+        long start = SystemClock.elapsedRealtime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PREFETCH_THREADS, hosts.size()), new DnsThreadFactory());
+        for (final String host : hosts) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        lookup(host);
+                    } catch (UnknownHostException e) {
+                        if (BuildConfig.DEBUG) {
+                            Log.v(TAG, "prefetch " + host + " fails: " + e);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(NetworkUtil.TIMEOUT_10, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "prefetch: resolution timeout, slow hosts will be resolved by their probe");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "prefetch: " + hosts.size() + " hosts in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        }
+    }
+
+    /**
+     * @param host server name
+     * @return fresh entry of host without resolution time, null if none, never blocks
+     */
+    public Entry cached(String host) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(host.toLowerCase());
+        }
+        if (entry == null || entry.isExpired(SystemClock.elapsedRealtime()) || entry.error != null) {
+            return null;
+        }
+        return entry.withResolveNanos(0);
+    }
+
+    /**
+     * @param host server name
+     * @return fresh entry of host from cache (no resolution time) or from resolver, stale one if resolver fails (time of failed resolution)
+     * @throws UnknownHostException if host can't be resolved, cached for {@link #NEGATIVE_TTL}
+     */
+    public Entry lookup(String host) throws UnknownHostException {
+        String key = host.toLowerCase();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (entry == null || entry.isExpired(now)) {
+            Entry previous = entry;
+            long start = CallPhases.now();
+            try {
+                entry = new Entry(InetAddress.getAllByName(host), null, now, CallPhases.now() - start);
+            } catch (UnknownHostException e) {
+                if (previous != null && previous.error == null && now - previous.resolvedAt < STALE_TTL) {
+                    Log.w(TAG, "lookup " + host + " fails, stale address served: " + e);
+                    return previous.withResolveNanos(CallPhases.now() - start);
+                }
+                entry = new Entry(null, e, now, CallPhases.now() - start);
+            }
+            synchronized (this) {
+                entries.put(key, entry);
+            }
+        } else {
+            entry = entry.withResolveNanos(0);
+        }
+        if (entry.error != null) {
+            UnknownHostException e = new UnknownHostException(entry.error.getMessage());
+            e.initCause(entry.error);
+            throw e;
+        }
+        return entry;
+    }
+
+    /**
+     * Drops all entries, to call when network changes.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized void purge() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.resolvedAt >= STALE_TTL) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Result of a host resolution.
+     */
+    public static class Entry {
+        private final InetAddress[] addresses;
+        private final UnknownHostException error;
+        private final long resolvedAt;
+        private final long resolveNanos;
+
+        Entry(InetAddress[] addresses, UnknownHostException error, long resolvedAt, long resolveNanos) {
+            this.addresses = addresses;
+            this.error = error;
+            this.resolvedAt = resolvedAt;
+            this.resolveNanos = resolveNanos;
+        }
+
+        /**
+         * @return same resolution, as paid resolveNanos by its call
+         */
+        Entry withResolveNanos(long resolveNanos) {
+            return new Entry(addresses, error, resolvedAt, resolveNanos);
+        }
+
+        boolean isExpired(long now) {
+            return now - resolvedAt >= (error == null ? POSITIVE_TTL : NEGATIVE_TTL);
+        }
+
+        /**
+         * @return addresses in order given by resolver, to try one after another as a failed connect on one family doesn't mean host is down
+         */
+        public InetAddress[] getAddresses() {
+            return addresses.clone();
+        }
+
+        /**
+         * @return time call paid to resolver for this entry, in nanos, 0 if served from cache
+         */
+        public long getResolveNanos() {
+            return resolveNanos;
+        }
+    }
+
+    private static class DnsThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+        }
+    }
+}
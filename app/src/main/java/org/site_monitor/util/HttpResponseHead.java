@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import java.net.ProtocolException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Status line and headers of a raw HTTP/1.x response, as read by probes working at socket level.
+ */
+public class HttpResponseHead {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final String HTTP_VERSION_PREFIX = "HTTP/";
+    private static final String CRLF = "\r\n";
+    private static final String LOCATION = "location";
+    private static final String CONNECTION = "connection";
+    private static final String CLOSE = "close";
+    private static final String KEEP_ALIVE = "keep-alive";
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String HEAD_REQUEST_FORMAT = "HEAD %s HTTP/1.1\r\nHost: %s\r\nUser-Agent: %s\r\nConnection: %s\r\n\r\n";
+
+    private final boolean http10;
+    private final int statusCode;
+    private final Map<String, String> headers;
+
+    private HttpResponseHead(boolean http10, int statusCode, Map<String, String> headers) {
+        this.http10 = http10;
+        this.statusCode = statusCode;
+        this.headers = headers;
+    }
+
+    /**
+     * @param buffer bytes received so far
+     * @param length count of valid bytes in buffer
+     * @return length of head including its terminating blank line, or -1 if head is not complete yet
+     */
+    public static int headLength(byte[] buffer, int length) {
+        for (int i = 3; i < length; i++) {
+            if (buffer[i] == '\n' && buffer[i - 1] == '\r' && buffer[i - 2] == '\n' && buffer[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param buffer     bytes received
+     * @param headLength as returned by {@link #headLength(byte[], int)}
+     * @return parsed head
+     * @throws ProtocolException if status line is not a valid HTTP/1.x one
+     */
+    public static HttpResponseHead parse(byte[] buffer, int headLength) throws ProtocolException {
+        String[] lines = new String(buffer, 0, headLength, ISO_8859_1).split(CRLF);
+        String statusLine = lines[0];
+        // HTTP/1.1 200 OK
+        if (!statusLine.startsWith(HTTP_VERSION_PREFIX) || statusLine.length() < 12 || statusLine.charAt(8) != ' ') {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(statusLine.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.US), lines[i].substring(colon + 1).trim());
+            }
+        }
+        return new HttpResponseHead(statusLine.startsWith(HTTP_1_0), statusCode, headers);
+    }
+
+    /**
+     * @param url        to request
+     * @param userAgent  to send
+     * @param connection value of Connection header (close or keep-alive)
+     * @return HEAD request bytes for url
+     */
+    public static byte[] headRequest(URL url, String userAgent, String connection) {
+        String path = url.getFile().isEmpty() ? "/" : url.getFile();
+        String host = url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+        return String.format(Locale.US, HEAD_REQUEST_FORMAT, path, host, userAgent, connection).getBytes(ISO_8859_1);
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @param name case insensitive
+     * @return header value or null if absent
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.US));
+    }
+
+    /**
+     * @return true if response redirects (300, 301, 302, 303, 307, 308) and gives a location
+     */
+    public boolean isRedirect() {
+        switch (statusCode) {
+            case 300:
+            case 301:
+            case 302:
+            case 303:
+            case 307:
+            case 308:
+                return getHeader(LOCATION) != null;
+            default:
+                return false;
+        }
+    }
+
+    public String getLocation() {
+        return getHeader(LOCATION);
+    }
+
+    /**
+     * @return true if server lets connection open after this response (HTTP/1.1 default, HTTP/1.0 only on explicit keep-alive)
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader(CONNECTION);
+        if (connection != null && connection.toLowerCase(Locale.US).contains(CLOSE)) {
+            return false;
+        }
+        return !http10 || (connection != null && connection.toLowerCase(Locale.US).contains(KEEP_ALIVE));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.util.Log;
+
+import org.site_monitor.BuildConfig;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.URL;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * HEAD calls on keep-alive connections taken from and given back to a {@link ConnectionPool}.<br/>
+ * Gives same {@link SiteCall} as a HttpURLConnection call, plus whether call went only through reused connections.
+ */
+class KeepAliveHttpClient {
+
+    private static final String TAG = KeepAliveHttpClient.class.getSimpleName();
+    private static final String HTTPS = "https";
+    private static final String KEEP_ALIVE = "keep-alive";
+    private static final int MAX_REDIRECTS = 20;
+    private static final int HEAD_BUFFER_SIZE = 4096;
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+
+    private final ConnectionPool pool;
+
+    KeepAliveHttpClient(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Performs HEAD call on url, following redirects of same protocol like HttpURLConnection.
+     *
+     * @param url        to call
+     * @param forceTrust true to trust all certificates
+     * @param timeout    connect and read timeout in millis
+     * @param timer      started when call was requested
+     * @param cancellation closes connection in use if call is given up
+     * @return call result, connection reuse and phases durations set
+     * @throws IOException if no response could be read
+     */
+    SiteCall call(URL url, boolean forceTrust, int timeout, Timer timer, CallCancellation cancellation) throws IOException {
+        CallPhases phases = new CallPhases();
+        boolean reused = true;
+        int redirects = 0;
+        while (true) {
+            Exchange exchange = exchange(url, forceTrust, timeout, phases, cancellation);
+            reused &= exchange.reused;
+            HttpResponseHead head = exchange.head;
+            if (head.isRedirect() && redirects < MAX_REDIRECTS) {
+                URL location = new URL(url, head.getLocation());
+                if (location.getProtocol().equals(url.getProtocol())) {
+                    redirects++;
+                    url = location;
+                    continue;
+                }
+            }
+            NetworkCallResult result = head.getStatusCode() == HttpURLConnection.HTTP_OK ? NetworkCallResult.SUCCESS : NetworkCallResult.FAIL;
+            SiteCall siteCall = new SiteCall(timer.getReferenceDate(), result, timer.getElapsedTime(), head.getStatusCode());
+            siteCall.setConnectionReused(reused);
+            phases.applyTo(siteCall);
+            return siteCall;
+        }
+    }
+
+    /**
+     * Sends HEAD on a pooled connection if any, retrying once on a fresh one if server closed it meanwhile.
+     */
+    private Exchange exchange(URL url, boolean forceTrust, int timeout, CallPhases phases, CallCancellation cancellation) throws IOException {
+        String key = ConnectionPool.keyOf(url, forceTrust);
+        ConnectionPool.Connection connection = pool.take(key);
+        if (connection != null) {
+            try {
+                connection.socket.setSoTimeout(timeout);
+                return new Exchange(exchange(connection, url, phases, cancellation), true);
+            } catch (IOException e) {
+                // HEAD is idempotent, a stale idle connection is worth a fresh one
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "stale connection " + key + ": " + e);
+                }
+            }
+        }
+        connection = connect(key, url, forceTrust, timeout, phases, cancellation);
+        return new Exchange(exchange(connection, url, phases, cancellation), false);
+    }
+
+    private HttpResponseHead exchange(ConnectionPool.Connection connection, URL url, CallPhases phases, CallCancellation cancellation) throws IOException {
+        boolean release = false;
+        try {
+            cancellation.attach(connection.socket);
+            connection.out.write(HttpResponseHead.headRequest(url, NetworkUtil.BOT_AGENT, KEEP_ALIVE));
+            connection.out.flush();
+            long sent = CallPhases.now();
+            long ttfb = 0;
+            byte[] buffer = new byte[HEAD_BUFFER_SIZE];
+            int length = 0;
+            int headLength;
+            while ((headLength = HttpResponseHead.headLength(buffer, length)) < 0) {
+                if (length == buffer.length) {
+                    if (buffer.length >= MAX_HEAD_SIZE) {
+                        throw new ProtocolException("response head too large");
+                    }
+                    byte[] enlarged = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, enlarged, 0, length);
+                    buffer = enlarged;
+                }
+                int read = connection.in.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    throw new EOFException("unexpected end of stream on " + url);
+                }
+                if (length == 0) {
+                    ttfb = CallPhases.now() - sent;
+                }
+                length += read;
+            }
+            HttpResponseHead head = HttpResponseHead.parse(buffer, headLength);
+            phases.add(CallPhases.Phase.TTFB, ttfb);
+            // HEAD response has no body, any extra byte means connection is not at a response boundary
+            release = head.isKeepAlive() && headLength == length;
+            return head;
+        } finally {
+            cancellation.detach();
+            // a connection closed by cancel must not go back to pool
+            if (release && !cancellation.isCancelled()) {
+                pool.release(connection);
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private ConnectionPool.Connection connect(String key, URL url, boolean forceTrust, int timeout, CallPhases phases, CallCancellation cancellation) throws IOException {
+        String host = url.getHost();
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        DnsCache.Entry dnsEntry = DnsCache.instance().lookup(host);
+        phases.add(CallPhases.Phase.DNS, dnsEntry.getResolveNanos());
+        long start = CallPhases.now();
+        Socket socket = connect(host, dnsEntry.getAddresses(), port, timeout, cancellation);
+        phases.since(CallPhases.Phase.CONNECT, start);
+        try {
+            socket.setSoTimeout(timeout);
+            if (HTTPS.equalsIgnoreCase(url.getProtocol())) {
+                SSLSocket sslSocket = (SSLSocket) TlsManager.sslSocketFactory(forceTrust).createSocket(socket, host, port, true);
+                socket = sslSocket;
+                start = CallPhases.now();
+                sslSocket.startHandshake();
+                phases.since(CallPhases.Phase.TLS, start);
+                if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(host, sslSocket.getSession())) {
+                    throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+                }
+            }
+            return new ConnectionPool.Connection(key, socket);
+        } catch (IOException | RuntimeException e) {
+            try {
+                socket.close();
+            } catch (IOException eClose) {
+                Log.w(TAG, "connect: close " + key, eClose);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Connects to addresses of host in order until one accepts, as HttpURLConnection does.
+     *
+     * @return connected socket, attached to cancellation: ssl socket wraps it with auto close, closing it ends handshake too
+     * @throws ConnectException of last address if none accepts
+     */
+    private static Socket connect(String host, InetAddress[] addresses, int port, int timeout, CallCancellation cancellation) throws IOException {
+        for (int i = 0; ; i++) {
+            Socket socket = new Socket();
+            cancellation.attach(socket);
+            try {
+                socket.connect(new InetSocketAddress(addresses[i], port), timeout);
+                return socket;
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException eClose) {
+                    Log.w(TAG, "connect: close " + host, eClose);
+                }
+                if (i == addresses.length - 1 || cancellation.isCancelled()) {
+                    // same message as HttpURLConnection so fail-to-connect tips still apply
+                    ConnectException connectException = new ConnectException("failed to connect to " + host + "/" + addresses[i].getHostAddress() + " (port " + port + "): " + e.getMessage());
+                    connectException.initCause(e);
+                    throw connectException;
+                }
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "connect " + host + "/" + addresses[i].getHostAddress() + " fails, next address: " + e);
+                }
+            }
+        }
+    }
+
+    private static class Exchange {
+        final HttpResponseHead head;
+        final boolean reused;
+
+        Exchange(HttpResponseHead head, boolean reused) {
+            this.head = head;
+            this.reused = reused;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Histogram of response times with buckets growing by {@link #GROWTH}, quantiles are known within 10%.<br/>
+ * Sketches of any periods merge by adding their counts, a sketch is stored as its non empty buckets only.
+ */
+public class LatencySketch {
+
+    public static final double GROWTH = 1.1;
+    // one hour, longer values are counted in last bucket
+    public static final long MAX_VALUE = 60 * TimeUtil.MINUTE_2_MILLISEC;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+
+    public LatencySketch() {
+    }
+
+    /**
+     * @param bytes from {@link #toBytes()}, may be null
+     * @return sketch, empty if bytes are null
+     */
+    public static LatencySketch fromBytes(byte[] bytes) {
+        LatencySketch sketch = new LatencySketch();
+        if (bytes == null) {
+            return sketch;
+        }
+        int[] position = {0};
+        int index = 0;
+        while (position[0] < bytes.length) {
+            index += (int) readVarLong(bytes, position);
+            long bucketCount = readVarLong(bytes, position);
+            sketch.counts[index] += bucketCount;
+            sketch.count += bucketCount;
+        }
+        return sketch;
+    }
+
+    private static int indexOf(long value) {
+        if (value <= 1) {
+            return 0;
+        }
+        return (int) Math.ceil(Math.log(Math.min(value, MAX_VALUE)) / LOG_GROWTH);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @param value response time in millis
+     */
+    public void add(long value) {
+        counts[indexOf(value)]++;
+        count++;
+    }
+
+    public void merge(LatencySketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param quantile from 0 to 1, 0.99 for p99
+     * @return upper bound in millis of the bucket holding quantile, -1 if empty
+     */
+    public long quantile(double quantile) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.round(Math.pow(GROWTH, i));
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    /**
+     * @return non empty buckets, as index delta and count var longs
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int previous = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, counts[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+}
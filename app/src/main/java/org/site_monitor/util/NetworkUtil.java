@@ -18,20 +18,39 @@ package org.site_monitor.util;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.site_monitor.BuildConfig;
+import org.site_monitor.model.bo.CallRoute;
 import org.site_monitor.model.bo.NetworkCallResult;
 import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSession;
 
 /**
  * Created by Martin Norbert on 31/01/2016.
@@ -40,17 +59,30 @@ public class NetworkUtil {
 
     private static final String TAG = NetworkUtil.class.getSimpleName();
 
-    private static final String RECVFROM_FAILED_ECONNRESET = "recvfrom failed: ECONNRESET";
-    private static final String BOT_AGENT = "bot-site-monitor";
+    static final String BOT_AGENT = "bot-site-monitor";
     private static final String USER_AGENT = "User-Agent";
-    private static final String CLOSE = "close";
+    static final String CLOSE = "close";
     private static final String CONNECTION = "Connection";
+    private static final String HOST = "Host";
     private static final String HTTP = "http";
     private static final String ROOT_PROTOCOL = "://";
-    private static final int TIMEOUT_10 = (int) (10 * TimeUtil.SEC_2_MILLISEC);
+    static final int TIMEOUT_10 = (int) (10 * TimeUtil.SEC_2_MILLISEC);
     private static final String METHOD_HEAD = "HEAD";
+    private static final String RACE_THREAD_NAME = "route-race-";
+    // head start of host over internal url when routes are raced
+    public static final long RACE_STAGGER = 300;
     private static final String FAVICON_SERVICE_URL = "https://www.google.com/s2/favicons?domain=";
 
+    private static final long RACE_THREAD_KEEP_ALIVE = TimeUtil.MINUTE_2_MILLISEC;
+
+    private static ThreadPoolExecutor raceExecutor;
+
+    private final KeepAliveHttpClient keepAliveHttpClient;
+    private final boolean raceRoutes;
+    // two routes per site checked at once
+    private final int raceThreads;
+    private final RetryPolicy retryPolicy;
+
     /**
      * Retrieves favicon for given url
      */
@@ -82,53 +114,254 @@ public class NetworkUtil {
     }
 
     /**
-     * Builds and performs http request for given siteSettings
+     * @param host as typed by user, with or without protocol
+     * @return url of host, http protocol is used when none given
+     * @throws MalformedURLException
+     */
+    public static URL toUrl(String host) throws MalformedURLException {
+        if (host.toLowerCase().startsWith(HTTP)) {
+            return new URL(host);
+        }
+        return new URL(HTTP + ROOT_PROTOCOL + host);
+    }
+
+    /**
+     * @param host as typed by user, with or without protocol
+     * @return lower case server name of host, or host itself if it is not a valid url
+     */
+    public static String serverNameOf(String host) {
+        try {
+            return toUrl(host).getHost().toLowerCase();
+        } catch (MalformedURLException e) {
+            return host;
+        }
+    }
+
+    public NetworkUtil() {
+        this(null, false, SiteCheckEngine.DEFAULT_MAX_CONCURRENCY, RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * @param connectionPool keep-alive connections to use, null to open then close a connection per call
+     * @param raceRoutes     true to call internal url {@link #RACE_STAGGER} after host instead of once host failed
+     * @param maxConcurrency max calls in flight, routes of as many sites are raced at once
+     * @param retryPolicy    retries of failed attempts, sites may have their own max attempts
+     */
+    public NetworkUtil(ConnectionPool connectionPool, boolean raceRoutes, int maxConcurrency, RetryPolicy retryPolicy) {
+        this.keepAliveHttpClient = connectionPool == null ? null : new KeepAliveHttpClient(connectionPool);
+        this.raceRoutes = raceRoutes;
+        this.raceThreads = 2 * Math.max(1, maxConcurrency);
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Shared by cycles, sized by last one: a route must not wait for a thread, {@link #RACE_STAGGER} would time its wait instead of head start of host.
+     *
+     * @param threads max threads, idle ones end after {@link #RACE_THREAD_KEEP_ALIVE}
+     */
+    private static synchronized ExecutorService raceExecutor(int threads) {
+        if (raceExecutor == null) {
+            raceExecutor = new ThreadPoolExecutor(threads, threads, RACE_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, RACE_THREAD_NAME + count.incrementAndGet());
+                }
+            });
+            raceExecutor.allowCoreThreadTimeOut(true);
+        } else if (threads > raceExecutor.getMaximumPoolSize()) {
+            raceExecutor.setMaximumPoolSize(threads);
+            raceExecutor.setCorePoolSize(threads);
+        } else if (threads < raceExecutor.getMaximumPoolSize()) {
+            raceExecutor.setCorePoolSize(threads);
+            raceExecutor.setMaximumPoolSize(threads);
+        }
+        return raceExecutor;
+    }
+
+    /**
+     * Builds and performs http request for given siteSettings with default timeout
      * @return SiteCall result
      */
     public SiteCall buildHeadHttpConnectionThenDoCall(Context context, SiteSettings siteSettings) {
-        SiteCall siteCall;
-        if (ConnectivityUtil.isConnected(context)) {
-            HttpURLConnection urlConnection = null;
-            Timer timer = new Timer();
-            try {
-                urlConnection = buildHeadHttpConnection(siteSettings.getHost(), siteSettings.isForcedCertificate());
-                siteCall = doCall(urlConnection, timer);
-            } catch (IOException e) {
-                disconnect(urlConnection);
-                if (e.getLocalizedMessage() != null && e.getLocalizedMessage().startsWith(RECVFROM_FAILED_ECONNRESET)) {
-                    Log.d(TAG, "RECVFROM_FAILED_ECONNRESET - retry once: " + siteSettings);
-                    try {
-                        timer = new Timer();
-                        urlConnection = buildHeadHttpConnection(siteSettings.getHost(), siteSettings.isForcedCertificate());
-                        siteCall = doCall(urlConnection, timer);
-                    } catch (IOException eConnReset) {
-                        disconnect(urlConnection);
-                        siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
-                    }
-                } else {
-                    try {
-                        if (siteSettings.getInternalUrl() != null) {
-                            Log.d(TAG, "retry with internal URL: " + siteSettings);
-                            timer = new Timer();
-                            urlConnection = buildHeadHttpConnection(siteSettings.getInternalUrl(), siteSettings.isForcedCertificate());
-                            siteCall = doCall(urlConnection, timer);
-                        } else {
-                            siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
-                        }
-                    } catch (IOException eInternalIp) {
-                        disconnect(urlConnection);
-                        siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
+        return buildHeadHttpConnectionThenDoCall(context, siteSettings, TIMEOUT_10);
+    }
+
+    /**
+     * Builds and performs http request for given siteSettings, on its internal url too if host fails
+     * (sequentially, or raced after {@link #RACE_STAGGER} if enabled), failed attempts are retried as retry policy allows
+     * @param timeout connect and read timeout in millis
+     * @return SiteCall result, with route of answer, time of each route and attempts
+     */
+    public SiteCall buildHeadHttpConnectionThenDoCall(Context context, SiteSettings siteSettings, int timeout) {
+        if (!ConnectivityUtil.isConnected(context)) {
+            return new SiteCall(new Date(), NetworkCallResult.NO_CONNECTIVITY);
+        }
+        RetryPolicy sitePolicy = retryPolicy.forSite(siteSettings);
+        // budget is shared by both routes
+        long deadline = SystemClock.elapsedRealtime() + sitePolicy.getBudget();
+        RouteCall hostCall = new RouteCall(CallRoute.HOST, siteSettings.getHost(), siteSettings.isForcedCertificate(), timeout, sitePolicy, deadline);
+        if (siteSettings.getInternalUrl() == null) {
+            return routed(hostCall.call(), hostCall, null);
+        }
+        RouteCall internalCall = new RouteCall(CallRoute.INTERNAL, siteSettings.getInternalUrl(), siteSettings.isForcedCertificate(), timeout, sitePolicy, deadline);
+        if (raceRoutes) {
+            return race(hostCall, internalCall);
+        }
+        SiteCall hostSiteCall = hostCall.call();
+        if (hostCall.error == null) {
+            return routed(hostSiteCall, hostCall, null);
+        }
+        Log.d(TAG, "retry with internal URL: " + siteSettings);
+        SiteCall internalSiteCall = internalCall.call();
+        return internalCall.error == null ? routed(internalSiteCall, hostCall, internalCall) : routed(hostSiteCall, hostCall, internalCall);
+    }
+
+    /**
+     * Calls host, then internal url after {@link #RACE_STAGGER} unless host answered meanwhile.<br/>
+     * First successful answer wins, other route is cancelled: its thread is interrupted and its connection closed.
+     * If none succeeds, host answer is reported, internal one only if host failed to answer (as without race).
+     */
+    private SiteCall race(RouteCall hostCall, RouteCall internalCall) {
+        CompletionService<SiteCall> completionService = new ExecutorCompletionService<>(raceExecutor(raceThreads));
+        Future<SiteCall> hostFuture = completionService.submit(hostCall);
+        Future<SiteCall> internalFuture = null;
+        try {
+            Future<SiteCall> done = completionService.poll(RACE_STAGGER, TimeUnit.MILLISECONDS);
+            if (done != null && hostCall.error == null) {
+                return routed(done.get(), hostCall, null);
+            }
+            internalFuture = completionService.submit(internalCall);
+            for (int pending = done == null ? 2 : 1; pending > 0; pending--) {
+                done = completionService.take();
+                SiteCall siteCall = done.get();
+                if (siteCall.getResult() == NetworkCallResult.SUCCESS) {
+                    if (done == hostFuture) {
+                        cancel(internalFuture, internalCall);
+                    } else {
+                        cancel(hostFuture, hostCall);
                     }
+                    return routed(siteCall, hostCall, internalCall);
                 }
-            } finally {
-                disconnect(urlConnection);
             }
-        } else {
-            siteCall = new SiteCall(new Date(), NetworkCallResult.NO_CONNECTIVITY);
+            if (hostCall.error != null && internalCall.error == null) {
+                return routed(internalFuture.get(), hostCall, internalCall);
+            }
+            return routed(hostFuture.get(), hostCall, internalCall);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(hostFuture, hostCall);
+            if (internalFuture != null) {
+                cancel(internalFuture, internalCall);
+            }
+            return new SiteCall(new Date(), NetworkCallResult.FAIL, 0L, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
+    }
+
+    /**
+     * Gives up route: a route not started yet won't start, a running one is interrupted in its retry delays and its connection closed.
+     */
+    private static void cancel(Future<SiteCall> future, RouteCall routeCall) {
+        future.cancel(true);
+        routeCall.cancellation.cancel();
+    }
+
+    /**
+     * Sets time of each route on siteCall.
+     *
+     * @param internalCall null if internal url wasn't called
+     */
+    private static SiteCall routed(SiteCall siteCall, RouteCall hostCall, RouteCall internalCall) {
+        siteCall.setHostTime(hostCall.elapsedTime);
+        siteCall.setInternalTime(internalCall == null ? null : internalCall.elapsedTime);
         return siteCall;
     }
 
+    /**
+     * Calls host on a kept-alive connection when a pool is given, on a new HttpURLConnection otherwise
+     *
+     * @param host
+     * @param forceTrust
+     * @param timeout
+     * @param timer
+     * @param cancellation disconnects connection in use if call is given up
+     * @return call result
+     * @throws IOException
+     */
+    private SiteCall call(String host, boolean forceTrust, int timeout, Timer timer, CallCancellation cancellation) throws IOException {
+        if (keepAliveHttpClient != null) {
+            return keepAliveHttpClient.call(toUrl(host), forceTrust, timeout, timer, cancellation);
+        }
+        URL url = toUrl(host);
+        CallPhases phases = new CallPhases();
+        // usually resolved at cycle start: connection goes to cached address, resolver isn't asked again within timed call
+        DnsCache.Entry dnsEntry = DnsCache.instance().lookup(url.getHost());
+        phases.add(CallPhases.Phase.DNS, dnsEntry.getResolveNanos());
+        InetAddress[] addresses = dnsEntry.getAddresses();
+        for (int i = 0; ; i++) {
+            try {
+                return call(url, addresses[i], forceTrust, timeout, timer, phases, cancellation);
+            } catch (ConnectException e) {
+                // a family may be unreachable on current network, as HttpURLConnection does next address is tried
+                if (i == addresses.length - 1 || cancellation.isCancelled()) {
+                    throw e;
+                }
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "connect " + url.getHost() + "/" + addresses[i].getHostAddress() + " fails, next address: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls url on a new HttpURLConnection to given address of its host, with host name as Host header, TLS server name and verified name.
+     *
+     * @param url     to call
+     * @param address resolved address of host of url
+     * @param phases  durations of call phases, DNS one already added
+     * @return call result
+     * @throws IOException
+     */
+    private SiteCall call(URL url, InetAddress address, boolean forceTrust, int timeout, Timer timer, CallPhases phases, CallCancellation cancellation) throws IOException {
+        HttpURLConnection urlConnection = null;
+        try {
+            final String serverName = url.getHost();
+            final String addressName = address.getHostAddress();
+            urlConnection = buildHeadHttpConnection(new URL(url.getProtocol(), addressName, url.getPort(), url.getFile()), timeout);
+            urlConnection.setRequestProperty(HOST, url.getPort() == -1 ? serverName : serverName + ":" + url.getPort());
+            final HttpURLConnection connection = urlConnection;
+            cancellation.attach(new Closeable() {
+                @Override
+                public void close() {
+                    connection.disconnect();
+                }
+            });
+            TlsManager.HandshakeTimingSocketFactory socketFactory = null;
+            if (urlConnection instanceof HttpsURLConnection) {
+                HttpsURLConnection httpsConnection = (HttpsURLConnection) urlConnection;
+                socketFactory = new TlsManager.HandshakeTimingSocketFactory(TlsManager.sslSocketFactory(forceTrust), addressName, serverName);
+                httpsConnection.setSSLSocketFactory(socketFactory);
+                httpsConnection.setHostnameVerifier(new HostnameVerifier() {
+                    @Override
+                    public boolean verify(String hostname, SSLSession session) {
+                        // redirects to other hosts are resolved by platform, verified as is
+                        return HttpsURLConnection.getDefaultHostnameVerifier().verify(addressName.equals(hostname) ? serverName : hostname, session);
+                    }
+                });
+            }
+            SiteCall siteCall = doCall(urlConnection, timer, socketFactory, phases);
+            siteCall.setConnectionReused(false);
+            return siteCall;
+        } finally {
+            cancellation.detach();
+            disconnect(urlConnection);
+        }
+    }
+
     public void disconnect(HttpURLConnection urlConnection) {
         if (urlConnection != null) {
             urlConnection.disconnect();
@@ -136,37 +369,47 @@ public class NetworkUtil {
     }
 
     /**
-     * Performs call represented by urlConnection
+     * Performs call represented by urlConnection.<br/>
+     * Connect phase is timed by connect() minus handshake, time to first byte by getResponseCode() so it includes redirect hops.
      *
      * @param urlConnection
      * @param timer
+     * @param socketFactory timing handshake of https connection, null for http
+     * @param phases        durations of call phases, completed then set on call result
      * @return call result
      * @throws IOException
      */
-    private SiteCall doCall(HttpURLConnection urlConnection, Timer timer) throws IOException {
+    private SiteCall doCall(HttpURLConnection urlConnection, Timer timer, TlsManager.HandshakeTimingSocketFactory socketFactory, CallPhases phases) throws IOException {
+        long start = CallPhases.now();
         urlConnection.connect();
+        long connectTime = CallPhases.now() - start;
+        if (socketFactory != null && socketFactory.getHandshakeNanos() >= 0) {
+            phases.add(CallPhases.Phase.TLS, socketFactory.getHandshakeNanos());
+            connectTime -= socketFactory.getHandshakeNanos();
+        }
+        phases.add(CallPhases.Phase.CONNECT, connectTime);
+        start = CallPhases.now();
         int responseCode = urlConnection.getResponseCode();
+        phases.since(CallPhases.Phase.TTFB, start);
+        SiteCall siteCall;
         if (responseCode != HttpURLConnection.HTTP_OK) {
-            return new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), responseCode);
+            siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), responseCode);
+        } else {
+            siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.SUCCESS, timer.getElapsedTime(), responseCode);
         }
-        return new SiteCall(timer.getReferenceDate(), NetworkCallResult.SUCCESS, timer.getElapsedTime(), responseCode);
+        phases.applyTo(siteCall);
+        return siteCall;
     }
 
     /**
-     * Builds HttpURLConnection (requestMethod = head, property = connection/close, no cache, follow redirects, connection/read timeout 10sec
+     * Builds HttpURLConnection (requestMethod = head, property = connection/close, no cache, follow redirects, connection/read timeout)
      *
-     * @param host
-     * @param forceTrust
+     * @param url
+     * @param timeout connect and read timeout in millis
      * @return HttpURLConnection
      * @throws IOException
      */
-    private HttpURLConnection buildHeadHttpConnection(String host, boolean forceTrust) throws IOException {
-        URL url;
-        if (host.toLowerCase().startsWith(HTTP)) {
-            url = new URL(host);
-        } else {
-            url = new URL(HTTP + ROOT_PROTOCOL + host);
-        }
+    private HttpURLConnection buildHeadHttpConnection(URL url, int timeout) throws IOException {
         HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
         urlConnection.setRequestMethod(METHOD_HEAD);
         urlConnection.setRequestProperty(CONNECTION, CLOSE);
@@ -176,12 +419,83 @@ public class NetworkUtil {
         urlConnection.setDoInput(false);
         urlConnection.setDoOutput(false);
         urlConnection.setInstanceFollowRedirects(true);
-        urlConnection.setConnectTimeout(TIMEOUT_10);
-        urlConnection.setReadTimeout(TIMEOUT_10);
-        if (forceTrust) {
-            ((HttpsURLConnection) urlConnection).setSSLSocketFactory(CertificateTrustAllManager.sslSocketFactory());
-        }
+        urlConnection.setConnectTimeout(timeout);
+        urlConnection.setReadTimeout(timeout);
         return urlConnection;
     }
 
+    /**
+     * Call of one route of a site, failed attempts retried as retry policy allows.
+     */
+    private class RouteCall implements Callable<SiteCall> {
+        final CallRoute route;
+        final String host;
+        final boolean forceTrust;
+        final int timeout;
+        final RetryPolicy retryPolicy;
+        final long deadline;
+        final CallCancellation cancellation = new CallCancellation();
+        // set once call ended
+        volatile IOException error;
+        volatile Long elapsedTime;
+
+        /**
+         * @param deadline end of time budget of site, as given by {@link SystemClock#elapsedRealtime()}
+         */
+        RouteCall(CallRoute route, String host, boolean forceTrust, int timeout, RetryPolicy retryPolicy, long deadline) {
+            this.route = route;
+            this.host = host;
+            this.forceTrust = forceTrust;
+            this.timeout = timeout;
+            this.retryPolicy = retryPolicy;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return answer of last attempt, or its failure with {@link #error} set if route didn't answer
+         */
+        @Override
+        public SiteCall call() {
+            Timer routeTimer = new Timer();
+            int attempt = 0;
+            SiteCall result = null;
+            while (result == null) {
+                attempt++;
+                long retryTime = routeTimer.getElapsedTime();
+                Timer timer = new Timer();
+                try {
+                    result = NetworkUtil.this.call(host, forceTrust, timeout, timer, cancellation);
+                    error = null;
+                } catch (IOException e) {
+                    error = e;
+                    long delay = retryPolicy.backoff(attempt, e, deadline - SystemClock.elapsedRealtime());
+                    if (delay == RetryPolicy.GIVE_UP || cancellation.isCancelled() || !sleep(delay)) {
+                        result = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
+                    } else if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "attempt " + attempt + " of " + host + " fails (" + RetryPolicy.classify(e) + "), retry in " + delay + "ms");
+                    }
+                }
+                if (result != null) {
+                    result.setAttempts(attempt);
+                    result.setRetryTime(retryTime);
+                }
+            }
+            result.setRoute(route);
+            elapsedTime = routeTimer.getElapsedTime();
+            return result;
+        }
+
+        /**
+         * @return false if interrupted, retries are then given up
+         */
+        private boolean sleep(long delay) {
+            try {
+                Thread.sleep(delay);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
 }
@@ -0,0 +1,845 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.site_monitor.BuildConfig;
+import org.site_monitor.model.bo.CallRoute;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * Probes sites with HEAD requests multiplexed on a single selector thread, with non blocking connect, TLS handshake and status line parsing.<br/>
+ * Only name resolution and TLS delegated tasks (certificate checks) run on a small worker pool, so thousands of sites can be in flight
+ * without a thread (and its stack) each. Gives same {@link SiteCall} as {@link NetworkUtil#buildHeadHttpConnectionThenDoCall(Context, SiteSettings)}:
+ * same redirect policy, same {@link RetryPolicy}, fallback on internal url. Backoff delays wait for a sweep, so they are rounded up to {@link #SWEEP_INTERVAL}.
+ */
+public class NioProbeEngine implements Closeable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    private static final String TAG = NioProbeEngine.class.getSimpleName();
+    private static final String THREAD_NAME = "nio-probe";
+    private static final String HTTPS = "https";
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final int WORKER_THREADS = 4;
+    private static final int MAX_REDIRECTS = 20;
+    private static final int HEAD_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final long SWEEP_INTERVAL = 250;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final String STOPPED = "probe engine stopped";
+
+    private final Selector selector;
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+    private final Queue<ProbeTask> selectorTasks = new ConcurrentLinkedQueue<>();
+    // accessed from selector thread only
+    private final Set<Probe> probes = new HashSet<>();
+    private final DnsCache dnsCache = DnsCache.instance();
+    private final RetryPolicy retryPolicy;
+    private final Thread selectorThread;
+    private volatile boolean closed;
+    // selector loop exited, probes are ended at once
+    private volatile boolean stopped;
+
+    /**
+     * Starts selector thread with default retry policy, engine must be closed when no more used.
+     *
+     * @throws IOException if selector can't be opened
+     */
+    public NioProbeEngine() throws IOException {
+        this(RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * Starts selector thread, engine must be closed when no more used.
+     *
+     * @param retryPolicy retries of failed attempts, sites may have their own max attempts
+     * @throws IOException if selector can't be opened
+     */
+    public NioProbeEngine(RetryPolicy retryPolicy) throws IOException {
+        this.retryPolicy = retryPolicy;
+        this.selector = Selector.open();
+        this.selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, THREAD_NAME);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Starts probe of given site, returns immediately.
+     *
+     * @param context
+     * @param siteSettings to probe
+     * @param timeout      max time in millis of each step (resolve, connect, read)
+     * @param callback     called from selector thread once probe is ended, with a FAIL call if engine stopped before
+     */
+    public void probe(Context context, SiteSettings siteSettings, int timeout, final Callback callback) {
+        if (!ConnectivityUtil.isConnected(context)) {
+            callback.onProbeEnd(new SiteCall(new Date(), NetworkCallResult.NO_CONNECTIVITY));
+            return;
+        }
+        final Probe probe = new Probe(siteSettings, timeout, callback);
+        post(probe, new Runnable() {
+            @Override
+            public void run() {
+                probes.add(probe);
+                probe.start(CallRoute.HOST);
+            }
+        });
+        if (stopped) {
+            // loop may have ended queued probes before this one was queued
+            endQueued(new IOException(STOPPED));
+        }
+    }
+
+    /**
+     * Stops selector thread, probes still in flight end with a FAIL call.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    private void post(Probe probe, Runnable task) {
+        selectorTasks.add(new ProbeTask(probe, task));
+        selector.wakeup();
+    }
+
+    /**
+     * Runs until closed or selector fails, then ends every probe in flight or queued: checks waiting for them never hang.
+     * A runtime exception ends the probe it comes from only.
+     */
+    private void loop() {
+        long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL;
+        IOException failure = new IOException(STOPPED);
+        while (!closed) {
+            try {
+                selector.select(SWEEP_INTERVAL);
+            } catch (IOException e) {
+                Log.e(TAG, "select", e);
+                failure = e;
+                break;
+            }
+            ProbeTask task;
+            while ((task = selectorTasks.poll()) != null) {
+                try {
+                    task.task.run();
+                } catch (RuntimeException e) {
+                    task.probe.abort(e);
+                }
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                Probe probe = (Probe) key.attachment();
+                try {
+                    probe.onReady(key);
+                } catch (RuntimeException e) {
+                    probe.abort(e);
+                }
+            }
+            selector.selectedKeys().clear();
+            long now = System.currentTimeMillis();
+            if (now >= nextSweep) {
+                sweep(now);
+                nextSweep = now + SWEEP_INTERVAL;
+            }
+        }
+        stopped = true;
+        for (Probe probe : new ArrayList<>(probes)) {
+            probe.abort(failure);
+        }
+        probes.clear();
+        endQueued(failure);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Log.w(TAG, "close selector", e);
+        }
+    }
+
+    private void sweep(long now) {
+        List<Probe> expired = new ArrayList<>();
+        for (Probe probe : probes) {
+            if (probe.deadline < now) {
+                expired.add(probe);
+            }
+        }
+        for (Probe probe : expired) {
+            try {
+                if (probe.backingOff) {
+                    probe.start(probe.route);
+                } else {
+                    probe.onError(probe.timeoutException());
+                }
+            } catch (RuntimeException e) {
+                probe.abort(e);
+            }
+        }
+    }
+
+    /**
+     * Ends probes of tasks never run, once loop is stopped. Each task is polled by one thread only.
+     */
+    private void endQueued(IOException e) {
+        ProbeTask task;
+        while ((task = selectorTasks.poll()) != null) {
+            task.probe.abort(e);
+        }
+    }
+
+    private static ByteBuffer enlarge(ByteBuffer buffer, int minCapacity) {
+        ByteBuffer enlarged = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minCapacity));
+        buffer.flip();
+        enlarged.put(buffer);
+        return enlarged;
+    }
+
+    /**
+     * Probe events.
+     */
+    public interface Callback {
+        void onProbeEnd(SiteCall siteCall);
+    }
+
+    /**
+     * Task run by selector thread for a probe.
+     */
+    private static class ProbeTask {
+        final Probe probe;
+        final Runnable task;
+
+        ProbeTask(Probe probe, Runnable task) {
+            this.probe = probe;
+            this.task = task;
+        }
+    }
+
+    private enum Phase {
+        RESOLVE, CONNECT, EXCHANGE
+    }
+
+    /**
+     * State of a site probe, mutated from selector thread only.
+     */
+    private class Probe {
+        final SiteSettings siteSettings;
+        final int timeout;
+        final Callback callback;
+        final RetryPolicy retryPolicy;
+        // end of time budget of site, as given by System.currentTimeMillis()
+        final long budgetDeadline;
+        // incremented on each attempt, so late continuations of previous ones are ignored
+        int attempt;
+        int redirects;
+        Timer timer;
+        CallRoute route;
+        // attempts on route, backoff included
+        Timer routeTimer;
+        int routeAttempts;
+        long retryTime;
+        // waiting for deadline to start next attempt on route
+        boolean backingOff;
+        // reported if internal url fails too
+        SiteCall hostFailure;
+        // time host took to fail, once internal url is called
+        Long hostTime;
+        URL url;
+        // addresses of host, tried in order until one accepts
+        InetAddress[] addresses;
+        int addressIndex;
+        InetAddress address;
+        Phase phase;
+        long deadline;
+        SocketChannel channel;
+        SelectionKey key;
+        SSLEngine sslEngine;
+        ByteBuffer netIn;
+        ByteBuffer netOut;
+        ByteBuffer appIn;
+        ByteBuffer appOut;
+        boolean handshakeDone;
+        boolean firstByteRead;
+        // phases of attempt, redirects included
+        final CallPhases phases = new CallPhases();
+        long phaseStart;
+        boolean endOfStream;
+        boolean ended;
+
+        Probe(SiteSettings siteSettings, int timeout, Callback callback) {
+            this.siteSettings = siteSettings;
+            this.timeout = timeout;
+            this.callback = callback;
+            this.retryPolicy = NioProbeEngine.this.retryPolicy.forSite(siteSettings);
+            this.budgetDeadline = System.currentTimeMillis() + retryPolicy.getBudget();
+        }
+
+        /**
+         * Starts an attempt on route, first one if route differs from current one.
+         */
+        void start(CallRoute route) {
+            if (route != this.route) {
+                this.route = route;
+                routeTimer = new Timer();
+                routeAttempts = 0;
+            }
+            routeAttempts++;
+            retryTime = routeTimer.getElapsedTime();
+            backingOff = false;
+            timer = new Timer();
+            redirects = 0;
+            phases.clear();
+            try {
+                url = NetworkUtil.toUrl(route == CallRoute.INTERNAL ? siteSettings.getInternalUrl() : siteSettings.getHost());
+            } catch (IOException e) {
+                onError(e);
+                return;
+            }
+            resolve();
+        }
+
+        void resolve() {
+            final int currentAttempt = ++attempt;
+            final String hostName = url.getHost();
+            phase = Phase.RESOLVE;
+            deadline = System.currentTimeMillis() + timeout;
+            DnsCache.Entry cached = dnsCache.cached(hostName);
+            if (cached != null) {
+                // resolved at cycle start, no need to leave selector thread
+                phases.add(CallPhases.Phase.DNS, cached.getResolveNanos());
+                connect(cached.getAddresses());
+                return;
+            }
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final DnsCache.Entry resolved = dnsCache.lookup(hostName);
+                        post(Probe.this, new Runnable() {
+                            @Override
+                            public void run() {
+                                if (attempt == currentAttempt && probes.contains(Probe.this)) {
+                                    phases.add(CallPhases.Phase.DNS, resolved.getResolveNanos());
+                                    connect(resolved.getAddresses());
+                                }
+                            }
+                        });
+                    } catch (final IOException e) {
+                        post(Probe.this, new Runnable() {
+                            @Override
+                            public void run() {
+                                if (attempt == currentAttempt && probes.contains(Probe.this)) {
+                                    onError(e);
+                                }
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        void connect(InetAddress[] resolved) {
+            addresses = resolved;
+            addressIndex = 0;
+            phaseStart = CallPhases.now();
+            connectAddress();
+        }
+
+        /**
+         * Connects to current address, connect phase spans all addresses tried.
+         */
+        void connectAddress() {
+            address = addresses[addressIndex];
+            phase = Phase.CONNECT;
+            deadline = System.currentTimeMillis() + timeout;
+            handshakeDone = false;
+            firstByteRead = false;
+            endOfStream = false;
+            sslEngine = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                boolean connected = channel.connect(new InetSocketAddress(address, port()));
+                key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected) {
+                    onConnected();
+                }
+            } catch (IOException e) {
+                onConnectError(e);
+            }
+        }
+
+        /**
+         * Tries next address of host, as HttpURLConnection does: a family may be unreachable on current network.
+         */
+        void onConnectError(IOException e) {
+            if (addressIndex + 1 < addresses.length) {
+                closeChannel();
+                if (BuildConfig.DEBUG) {
+                    Log.v(TAG, "connect " + url.getHost() + "/" + address.getHostAddress() + " fails, next address: " + e);
+                }
+                addressIndex++;
+                connectAddress();
+                return;
+            }
+            onError(connectException(e));
+        }
+
+        void onReady(SelectionKey readyKey) {
+            if (!readyKey.isValid() || readyKey != key) {
+                return;
+            }
+            try {
+                if (phase == Phase.CONNECT) {
+                    try {
+                        channel.finishConnect();
+                    } catch (IOException e) {
+                        onConnectError(e);
+                        return;
+                    }
+                    onConnected();
+                } else {
+                    pump();
+                }
+            } catch (IOException | RuntimeException e) {
+                onError(e);
+            }
+        }
+
+        void onConnected() throws IOException {
+            phases.since(CallPhases.Phase.CONNECT, phaseStart);
+            phaseStart = CallPhases.now();
+            phase = Phase.EXCHANGE;
+            deadline = System.currentTimeMillis() + timeout;
+            appIn = ByteBuffer.allocate(HEAD_BUFFER_SIZE);
+            appOut = ByteBuffer.wrap(HttpResponseHead.headRequest(url, NetworkUtil.BOT_AGENT, NetworkUtil.CLOSE));
+            if (isHttps()) {
+                // peer host and port let shared context resume TLS session of previous checks
+                sslEngine = TlsManager.sslContext(siteSettings.isForcedCertificate()).createSSLEngine(url.getHost(), port());
+                sslEngine.setUseClientMode(true);
+                sslEngine.beginHandshake();
+                int packetBufferSize = sslEngine.getSession().getPacketBufferSize();
+                netIn = ByteBuffer.allocate(packetBufferSize);
+                netOut = ByteBuffer.allocate(packetBufferSize);
+                netOut.flip();
+            }
+            pump();
+        }
+
+        /**
+         * Moves bytes as far as possible without blocking, then waits for next readiness.
+         */
+        void pump() throws IOException {
+            if (sslEngine == null) {
+                pumpPlain();
+            } else {
+                pumpTls();
+            }
+        }
+
+        void pumpPlain() throws IOException {
+            if (appOut.hasRemaining()) {
+                channel.write(appOut);
+                if (appOut.hasRemaining()) {
+                    interest(SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            while (true) {
+                ensureAppInCapacity();
+                int read = channel.read(appIn);
+                if (read < 0) {
+                    endOfStream = true;
+                } else if (read > 0) {
+                    deadline = System.currentTimeMillis() + timeout;
+                }
+                if (checkResponse()) {
+                    return;
+                }
+                if (read == 0) {
+                    interest(SelectionKey.OP_READ);
+                    return;
+                }
+            }
+        }
+
+        void pumpTls() throws IOException {
+            if (!flush()) {
+                return;
+            }
+            while (true) {
+                switch (sslEngine.getHandshakeStatus()) {
+                    case NEED_TASK:
+                        runDelegatedTasks();
+                        return;
+                    case NEED_WRAP:
+                        wrap(EMPTY);
+                        if (!flush()) {
+                            return;
+                        }
+                        break;
+                    case NEED_UNWRAP:
+                        if (!unwrap()) {
+                            interest(SelectionKey.OP_READ);
+                            return;
+                        }
+                        break;
+                    default:
+                        if (!handshakeDone) {
+                            handshakeDone = true;
+                            phases.since(CallPhases.Phase.TLS, phaseStart);
+                            phaseStart = CallPhases.now();
+                            verifyHostname();
+                        }
+                        if (appOut.hasRemaining()) {
+                            wrap(appOut);
+                            if (!flush()) {
+                                return;
+                            }
+                            break;
+                        }
+                        boolean progress = unwrap();
+                        if (checkResponse()) {
+                            return;
+                        }
+                        if (!progress) {
+                            interest(SelectionKey.OP_READ);
+                            return;
+                        }
+                }
+            }
+        }
+
+        /**
+         * @return true if all pending network bytes are written
+         */
+        boolean flush() throws IOException {
+            if (netOut.hasRemaining()) {
+                channel.write(netOut);
+                if (netOut.hasRemaining()) {
+                    interest(SelectionKey.OP_WRITE);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void wrap(ByteBuffer source) throws IOException {
+            while (true) {
+                netOut.compact();
+                SSLEngineResult result = sslEngine.wrap(source, netOut);
+                netOut.flip();
+                switch (result.getStatus()) {
+                    case BUFFER_OVERFLOW:
+                        netOut.compact();
+                        netOut = enlarge(netOut, sslEngine.getSession().getPacketBufferSize());
+                        netOut.flip();
+                        break;
+                    case CLOSED:
+                        throw new SSLException("connection closed during TLS exchange");
+                    default:
+                        return;
+                }
+            }
+        }
+
+        /**
+         * @return true if some bytes were unwrapped, false if more network bytes are needed
+         */
+        boolean unwrap() throws IOException {
+            while (true) {
+                netIn.flip();
+                SSLEngineResult result = sslEngine.unwrap(netIn, appIn);
+                netIn.compact();
+                switch (result.getStatus()) {
+                    case BUFFER_OVERFLOW:
+                        if (appIn.capacity() >= MAX_HEAD_SIZE) {
+                            throw new ProtocolException("response head too large");
+                        }
+                        appIn = enlarge(appIn, sslEngine.getSession().getApplicationBufferSize());
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        if (!netIn.hasRemaining()) {
+                            netIn = enlarge(netIn, sslEngine.getSession().getPacketBufferSize());
+                        }
+                        int read = channel.read(netIn);
+                        if (read < 0) {
+                            endOfStream = true;
+                            if (handshakeDone) {
+                                return false;
+                            }
+                            throw new SSLException("connection closed during handshake");
+                        }
+                        if (read == 0) {
+                            return false;
+                        }
+                        deadline = System.currentTimeMillis() + timeout;
+                        break;
+                    case CLOSED:
+                        endOfStream = true;
+                        return false;
+                    default:
+                        if (result.bytesConsumed() > 0 || result.bytesProduced() > 0) {
+                            return true;
+                        }
+                }
+            }
+        }
+
+        void runDelegatedTasks() {
+            final List<Runnable> tasks = new ArrayList<>();
+            Runnable task;
+            while ((task = sslEngine.getDelegatedTask()) != null) {
+                tasks.add(task);
+            }
+            interest(0);
+            final int currentAttempt = attempt;
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (Runnable delegated : tasks) {
+                        delegated.run();
+                    }
+                    post(Probe.this, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (attempt == currentAttempt && probes.contains(Probe.this)) {
+                                try {
+                                    pump();
+                                } catch (IOException | RuntimeException e) {
+                                    onError(e);
+                                }
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        void verifyHostname() throws SSLPeerUnverifiedException {
+            if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(url.getHost(), sslEngine.getSession())) {
+                throw new SSLPeerUnverifiedException("Hostname " + url.getHost() + " not verified");
+            }
+        }
+
+        void ensureAppInCapacity() throws ProtocolException {
+            if (!appIn.hasRemaining()) {
+                if (appIn.capacity() >= MAX_HEAD_SIZE) {
+                    throw new ProtocolException("response head too large");
+                }
+                appIn = enlarge(appIn, HEAD_BUFFER_SIZE);
+            }
+        }
+
+        /**
+         * @return true if response head is complete and probe went on (ended, redirected)
+         */
+        boolean checkResponse() throws IOException {
+            if (!firstByteRead && appIn.position() > 0) {
+                firstByteRead = true;
+                phases.since(CallPhases.Phase.TTFB, phaseStart);
+            }
+            int headLength = HttpResponseHead.headLength(appIn.array(), appIn.position());
+            if (headLength < 0) {
+                if (endOfStream) {
+                    throw new EOFException("unexpected end of stream on " + url);
+                }
+                return false;
+            }
+            HttpResponseHead head = HttpResponseHead.parse(appIn.array(), headLength);
+            closeChannel();
+            if (head.isRedirect() && redirects < MAX_REDIRECTS) {
+                URL location = new URL(url, head.getLocation());
+                // like HttpURLConnection, never follows redirect to another protocol
+                if (location.getProtocol().equals(url.getProtocol())) {
+                    redirects++;
+                    url = location;
+                    resolve();
+                    return true;
+                }
+            }
+            NetworkCallResult result = head.getStatusCode() == HttpURLConnection.HTTP_OK ? NetworkCallResult.SUCCESS : NetworkCallResult.FAIL;
+            SiteCall siteCall = new SiteCall(timer.getReferenceDate(), result, timer.getElapsedTime(), head.getStatusCode());
+            siteCall.setConnectionReused(false);
+            phases.applyTo(siteCall);
+            end(siteCall);
+            return true;
+        }
+
+        void onError(Exception e) {
+            closeChannel();
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "probe " + url + " fails: " + e);
+            }
+            long now = System.currentTimeMillis();
+            long delay = retryPolicy.backoff(routeAttempts, e, budgetDeadline - now);
+            if (delay != RetryPolicy.GIVE_UP) {
+                // next attempt started by sweep
+                attempt++;
+                backingOff = true;
+                deadline = now + delay;
+                return;
+            }
+            SiteCall siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
+            if (route == CallRoute.HOST && siteSettings.getInternalUrl() != null) {
+                hostFailure = siteCall;
+                hostFailure.setAttempts(routeAttempts);
+                hostFailure.setRetryTime(retryTime);
+                hostTime = routeTimer.getElapsedTime();
+                start(CallRoute.INTERNAL);
+                return;
+            }
+            if (hostFailure != null) {
+                // internal url failed too, host failure is reported
+                siteCall = hostFailure;
+                siteCall.setRoute(CallRoute.HOST);
+            }
+            end(siteCall);
+        }
+
+        void end(SiteCall siteCall) {
+            if (siteCall.getRoute() == null) {
+                siteCall.setRoute(route);
+                siteCall.setAttempts(routeAttempts);
+                siteCall.setRetryTime(retryTime);
+            }
+            if (route == CallRoute.INTERNAL) {
+                siteCall.setHostTime(hostTime);
+                siteCall.setInternalTime(routeTimer.getElapsedTime());
+            } else {
+                siteCall.setHostTime(routeTimer.getElapsedTime());
+            }
+            attempt++;
+            ended = true;
+            probes.remove(this);
+            callback.onProbeEnd(siteCall);
+        }
+
+        /**
+         * Ends probe with a FAIL call without retry nor fallback, if not ended yet.
+         */
+        void abort(Exception e) {
+            if (ended) {
+                return;
+            }
+            Log.w(TAG, "abort probe of " + siteSettings.getHost(), e);
+            closeChannel();
+            if (timer == null) {
+                // never started, not in probes
+                ended = true;
+                callback.onProbeEnd(new SiteCall(new Date(), NetworkCallResult.FAIL, 0L, e));
+                return;
+            }
+            SiteCall siteCall = new SiteCall(timer.getReferenceDate(), NetworkCallResult.FAIL, timer.getElapsedTime(), e);
+            if (hostFailure != null) {
+                siteCall = hostFailure;
+                siteCall.setRoute(CallRoute.HOST);
+            }
+            end(siteCall);
+        }
+
+        void interest(int ops) {
+            if (key != null && key.isValid()) {
+                key.interestOps(ops);
+            }
+        }
+
+        void closeChannel() {
+            if (key != null) {
+                key.cancel();
+                key = null;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "closeChannel", e);
+                }
+                channel = null;
+            }
+        }
+
+        boolean isHttps() {
+            return HTTPS.equalsIgnoreCase(url.getProtocol());
+        }
+
+        int port() {
+            if (url.getPort() != -1) {
+                return url.getPort();
+            }
+            return isHttps() ? HTTPS_PORT : HTTP_PORT;
+        }
+
+        /**
+         * Same message as HttpURLConnection so fail-to-connect tips still apply.
+         */
+        IOException connectException(IOException cause) {
+            ConnectException e = new ConnectException("failed to connect to " + url.getHost() + "/" + address.getHostAddress() + " (port " + port() + "): " + cause.getMessage());
+            e.initCause(cause);
+            return e;
+        }
+
+        IOException timeoutException() {
+            if (phase == Phase.CONNECT) {
+                return new SocketTimeoutException("failed to connect to " + url.getHost() + "/" + address.getHostAddress() + " (port " + port() + ") after " + timeout + "ms");
+            }
+            return new SocketTimeoutException("timeout");
+        }
+    }
+}
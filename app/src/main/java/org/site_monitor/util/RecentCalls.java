@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.util;
+
+import org.site_monitor.model.bo.CallError;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.db.DBSiteCall;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last {@link #CAPACITY} calls of each site shared by the whole process, as dates, results, errors and response times
+ * in primitive arrays.<br/>
+ * Calls of a site are read from database the first time they are asked for, then check engine appends each call as it ends:
+ * hot paths read neither database nor call objects.
+ */
+public class RecentCalls {
+
+    public static final int CAPACITY = 100;
+    private static final RecentCalls INSTANCE = new RecentCalls();
+
+    private final Map<Long, Ring> rings = new HashMap<>();
+
+    private RecentCalls() {
+    }
+
+    public static RecentCalls instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Appends call as it ends, before it is written.
+     *
+     * @param siteSettings site of call, ignored if not saved yet
+     */
+    public void add(SiteSettings siteSettings, SiteCall siteCall) {
+        if (siteSettings.getId() == null) {
+            return;
+        }
+        ringOf(siteSettings.getId()).add(siteCall);
+    }
+
+    /**
+     * @param dbSiteCall calls source, read once per site
+     * @return recent calls of site
+     * @throws SQLException
+     */
+    public Ring of(DBSiteCall dbSiteCall, SiteSettings siteSettings) throws SQLException {
+        Ring ring = ringOf(siteSettings.getId());
+        if (!ring.isWarm()) {
+            ring.warm(dbSiteCall.findLastCalls(siteSettings, CAPACITY));
+        }
+        return ring;
+    }
+
+    /**
+     * Forgets calls of a removed site.
+     */
+    public synchronized void remove(SiteSettings siteSettings) {
+        rings.remove(siteSettings.getId());
+    }
+
+    private synchronized Ring ringOf(Long siteId) {
+        Ring ring = rings.get(siteId);
+        if (ring == null) {
+            ring = new Ring();
+            rings.put(siteId, ring);
+        }
+        return ring;
+    }
+
+    /**
+     * Calls of a site, index 0 is the oldest kept.
+     */
+    public static class Ring {
+
+        private static final NetworkCallResult[] RESULTS = NetworkCallResult.values();
+        private static final CallError[] ERRORS = CallError.values();
+        private static final byte NO_ERROR = -1;
+        private final long[] dates = new long[CAPACITY];
+        private final long[] responseTimes = new long[CAPACITY];
+        private final byte[] results = new byte[CAPACITY];
+        private final byte[] errors = new byte[CAPACITY];
+        private int start;
+        private int size;
+        private boolean warm;
+
+        private synchronized boolean isWarm() {
+            return warm;
+        }
+
+        /**
+         * Puts calls read from database before calls appended meanwhile, these are newer than all but those already written.
+         *
+         * @param siteCalls last calls of site, oldest first
+         */
+        private synchronized void warm(List<SiteCall> siteCalls) {
+            if (warm) {
+                return;
+            }
+            long lastWritten = siteCalls.isEmpty() ? Long.MIN_VALUE : siteCalls.get(siteCalls.size() - 1).getDate().getTime();
+            int appendedSize = size;
+            long[] appendedDates = new long[appendedSize];
+            long[] appendedResponseTimes = new long[appendedSize];
+            byte[] appendedResults = new byte[appendedSize];
+            byte[] appendedErrors = new byte[appendedSize];
+            for (int i = 0; i < appendedSize; i++) {
+                int index = indexOf(i);
+                appendedDates[i] = dates[index];
+                appendedResponseTimes[i] = responseTimes[index];
+                appendedResults[i] = results[index];
+                appendedErrors[i] = errors[index];
+            }
+            start = 0;
+            size = 0;
+            for (SiteCall siteCall : siteCalls) {
+                add(siteCall);
+            }
+            for (int i = 0; i < appendedSize; i++) {
+                if (appendedDates[i] > lastWritten) {
+                    add(appendedDates[i], appendedResponseTimes[i], appendedResults[i], appendedErrors[i]);
+                }
+            }
+            warm = true;
+        }
+
+        synchronized void add(SiteCall siteCall) {
+            add(siteCall.getDate().getTime(), siteCall.getResponseTime() == null ? 0 : siteCall.getResponseTime(),
+                    (byte) siteCall.getResult().ordinal(), siteCall.getError() == null ? NO_ERROR : (byte) siteCall.getError().ordinal());
+        }
+
+        private void add(long date, long responseTime, byte result, byte error) {
+            int index = indexOf(size);
+            if (size == CAPACITY) {
+                start = (start + 1) % CAPACITY;
+            } else {
+                size++;
+            }
+            dates[index] = date;
+            responseTimes[index] = responseTime;
+            results[index] = result;
+            errors[index] = error;
+        }
+
+        private int indexOf(int i) {
+            return (start + i) % CAPACITY;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        /**
+         * @param i from 0, the oldest call kept, to {@link #size()} - 1, the last call
+         */
+        public synchronized long dateAt(int i) {
+            return dates[indexOf(i)];
+        }
+
+        public synchronized NetworkCallResult resultAt(int i) {
+            return RESULTS[results[indexOf(i)]];
+        }
+
+        /**
+         * @return class of failure of call, null if none
+         */
+        public synchronized CallError errorAt(int i) {
+            byte error = errors[indexOf(i)];
+            return error == NO_ERROR ? null : ERRORS[error];
+        }
+
+        public synchronized long responseTimeAt(int i) {
+            return responseTimes[indexOf(i)];
+        }
+
+        /**
+         * @return response times of successful calls, most recent first
+         */
+        public synchronized long[] successResponseTimes() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (results[indexOf(i)] == NetworkCallResult.SUCCESS.ordinal()) {
+                    count++;
+                }
+            }
+            long[] successTimes = new long[count];
+            int j = 0;
+            for (int i = size - 1; i >= 0; i--) {
+                int index = indexOf(i);
+                if (results[index] == NetworkCallResult.SUCCESS.ordinal()) {
+                    successTimes[j++] = responseTimes[index];
+                }
+            }
+            return successTimes;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import org.site_monitor.model.bo.CallError;
+import org.site_monitor.model.bo.SiteSettings;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When and how long to wait before calling a site again after a failed attempt.<br/>
+ * Only failures of a retryable class are retried, up to max attempts, with an exponential backoff and full jitter
+ * (random delay up to base delay x 2^(attempt - 1), capped to max delay), as long as the time budget of the site is not spent.
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 2;
+    public static final long DEFAULT_BASE_DELAY = 250;
+    public static final long DEFAULT_MAX_DELAY = 4 * TimeUtil.SEC_2_MILLISEC;
+    public static final long DEFAULT_BUDGET = 15 * TimeUtil.SEC_2_MILLISEC;
+    public static final Set<Failure> DEFAULT_RETRYABLE = Collections.unmodifiableSet(EnumSet.of(Failure.CONNECTION_RESET));
+    public static final RetryPolicy DEFAULT = new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_BUDGET, DEFAULT_RETRYABLE);
+    public static final long GIVE_UP = -1;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long budget;
+    private final Set<Failure> retryable;
+
+    /**
+     * @param maxAttempts max attempts of a route, first one included
+     * @param baseDelay   max delay in millis before second attempt
+     * @param maxDelay    max delay in millis before any attempt
+     * @param budget      max time in millis spent on a site before last attempt starts
+     * @param retryable   failures worth another attempt
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, long budget, Set<Failure> retryable) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.budget = budget;
+        this.retryable = retryable.isEmpty() ? Collections.<Failure>emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(retryable));
+    }
+
+    /**
+     * @param e failure of an attempt
+     * @return class of failure
+     */
+    public static Failure classify(Exception e) {
+        switch (CallError.of(e)) {
+            case RESET:
+                return Failure.CONNECTION_RESET;
+            case REFUSED:
+                return Failure.CONNECTION_REFUSED;
+            case CONNECT_TIMEOUT:
+            case TIMEOUT:
+                return Failure.TIMEOUT;
+            case DNS:
+                return Failure.UNKNOWN_HOST;
+            case TLS:
+            case CERT:
+                return Failure.TLS;
+            default:
+                return Failure.OTHER;
+        }
+    }
+
+    /**
+     * @param siteSettings site to call
+     * @return this policy, with max attempts of site if it has its own
+     */
+    public RetryPolicy forSite(SiteSettings siteSettings) {
+        if (siteSettings.getMaxAttempts() == null || siteSettings.getMaxAttempts() == maxAttempts) {
+            return this;
+        }
+        return new RetryPolicy(siteSettings.getMaxAttempts(), baseDelay, maxDelay, budget, retryable);
+    }
+
+    /**
+     * @param attempt   number of failed attempt, from 1
+     * @param e         failure of attempt
+     * @param remaining time left in millis of site budget
+     * @return delay in millis to wait before next attempt, {@link #GIVE_UP} if failure must be reported
+     */
+    public long backoff(int attempt, Exception e, long remaining) {
+        if (attempt >= maxAttempts || !retryable.contains(classify(e))) {
+            return GIVE_UP;
+        }
+        long cap = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        return delay < remaining ? delay : GIVE_UP;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return max time in millis spent on a site before last attempt starts
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    public Set<Failure> getRetryable() {
+        return retryable;
+    }
+
+    /**
+     * Classes of call failures.
+     */
+    public enum Failure {
+        CONNECTION_RESET,
+        CONNECTION_REFUSED,
+        TIMEOUT,
+        UNKNOWN_HOST,
+        TLS,
+        OTHER
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import org.site_monitor.BuildConfig;
+import org.site_monitor.activity.PrefSettingsActivity;
+import org.site_monitor.model.bo.NetworkCallResult;
+import org.site_monitor.model.bo.SiteCall;
+import org.site_monitor.model.bo.SiteSettings;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks a set of sites with a bounded number of calls in flight, globally and per server.<br/>
+ * Results are given back on the calling thread in completion order, so a cycle lasts as long as its slowest sites and not the sum of all of them.<br/>
+ * Hosts are resolved all together before first call ({@link DnsCache}) and each site gets its own timeout ({@link AdaptiveTimeout}),
+ * failed attempts are retried as {@link RetryPolicy} allows.<br/>
+ * Calls run either on a thread each ({@link NetworkUtil}), optionally on kept-alive connections, or multiplexed on a selector ({@link NioProbeEngine}) for large site lists.
+ */
+public class SiteCheckEngine {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final int DEFAULT_MAX_PER_HOST = 2;
+    public static final String PROBE_ENGINE_THREADS = "threads";
+    public static final String PROBE_ENGINE_NIO = "nio";
+    private static final String TAG = SiteCheckEngine.class.getSimpleName();
+    private static final String THREAD_NAME = "site-check-";
+
+    private final NetworkUtil networkUtil;
+    private final int maxConcurrency;
+    private final int maxPerHost;
+    private final boolean multiplexed;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param maxConcurrency max calls in flight for a cycle, ignored when multiplexed
+     * @param maxPerHost     max calls in flight on the same server for a cycle
+     * @param multiplexed    true to probe with {@link NioProbeEngine} instead of a thread per call
+     * @param connectionPool keep-alive connections for calls on threads, null to open then close a connection per call
+     * @param raceRoutes     true to race host and internal url of sites for calls on threads, instead of falling back on internal url
+     * @param retryPolicy    retries of failed attempts, sites may have their own max attempts
+     */
+    public SiteCheckEngine(int maxConcurrency, int maxPerHost, boolean multiplexed, ConnectionPool connectionPool, boolean raceRoutes, RetryPolicy retryPolicy) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.multiplexed = multiplexed;
+        this.retryPolicy = retryPolicy;
+        this.networkUtil = new NetworkUtil(connectionPool, raceRoutes, this.maxConcurrency, retryPolicy);
+    }
+
+    /**
+     * @param context
+     * @return engine configured with probe engine, concurrency limit, keep-alive pool, route racing and retry policy from preferences
+     */
+    public static SiteCheckEngine fromPreferences(Context context) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean multiplexed = PROBE_ENGINE_NIO.equals(preferences.getString(PrefSettingsActivity.PROBE_ENGINE, PROBE_ENGINE_THREADS));
+        int concurrency = intPreference(preferences, PrefSettingsActivity.CHECK_CONCURRENCY, DEFAULT_MAX_CONCURRENCY);
+        ConnectionPool connectionPool = ConnectionPool.instance();
+        if (preferences.getBoolean(PrefSettingsActivity.KEEP_ALIVE, false)) {
+            long idleTtl = intPreference(preferences, PrefSettingsActivity.KEEP_ALIVE_IDLE_TTL, (int) (ConnectionPool.DEFAULT_IDLE_TTL / TimeUtil.SEC_2_MILLISEC)) * TimeUtil.SEC_2_MILLISEC;
+            connectionPool.configure(idleTtl, intPreference(preferences, PrefSettingsActivity.KEEP_ALIVE_POOL_SIZE, ConnectionPool.DEFAULT_MAX_IDLE));
+        } else {
+            connectionPool.evictAll();
+            connectionPool = null;
+        }
+        boolean raceRoutes = preferences.getBoolean(PrefSettingsActivity.RACE_ROUTES, false);
+        return new SiteCheckEngine(concurrency, DEFAULT_MAX_PER_HOST, multiplexed, connectionPool, raceRoutes, retryPolicyOf(preferences));
+    }
+
+    private static RetryPolicy retryPolicyOf(SharedPreferences preferences) {
+        int maxAttempts = intPreference(preferences, PrefSettingsActivity.RETRY_MAX_ATTEMPTS, RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+        long budget = intPreference(preferences, PrefSettingsActivity.RETRY_BUDGET, (int) (RetryPolicy.DEFAULT_BUDGET / TimeUtil.SEC_2_MILLISEC)) * TimeUtil.SEC_2_MILLISEC;
+        Set<String> defaultRetryable = new HashSet<>();
+        for (RetryPolicy.Failure failure : RetryPolicy.DEFAULT_RETRYABLE) {
+            defaultRetryable.add(failure.name());
+        }
+        Set<RetryPolicy.Failure> retryable = EnumSet.noneOf(RetryPolicy.Failure.class);
+        for (String value : preferences.getStringSet(PrefSettingsActivity.RETRY_ON, defaultRetryable)) {
+            try {
+                retryable.add(RetryPolicy.Failure.valueOf(value));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "fromPreferences: invalid " + PrefSettingsActivity.RETRY_ON + " " + value);
+            }
+        }
+        return new RetryPolicy(maxAttempts, RetryPolicy.DEFAULT_BASE_DELAY, RetryPolicy.DEFAULT_MAX_DELAY, budget, retryable);
+    }
+
+    private static int intPreference(SharedPreferences preferences, String key, int defaultValue) {
+        String value = preferences.getString(key, String.valueOf(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "fromPreferences: invalid " + key + " " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Checks all given sites and blocks until all results are given to listener.
+     *
+     * @param context
+     * @param sites    to check
+     * @param listener notified of each start (from any thread) and each end (from calling thread, in completion order)
+     */
+    public void check(Context context, Collection<SiteSettings> sites, Listener listener) {
+        if (sites.isEmpty()) {
+            return;
+        }
+        if (ConnectivityUtil.isConnected(context)) {
+            DnsCache.instance().prefetch(serverNamesOf(sites));
+        }
+        Map<SiteSettings, Integer> timeouts = AdaptiveTimeout.timeoutsOf(context, sites);
+        NioProbeEngine nioProbeEngine = null;
+        ExecutorService executor = null;
+        int limit = maxConcurrency;
+        if (multiplexed) {
+            try {
+                nioProbeEngine = new NioProbeEngine(retryPolicy);
+                limit = NioProbeEngine.DEFAULT_MAX_IN_FLIGHT;
+            } catch (IOException e) {
+                Log.e(TAG, "check: multiplexed engine unavailable, fallback on threads", e);
+            }
+        }
+        if (nioProbeEngine == null) {
+            executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, sites.size()), new CheckThreadFactory());
+        }
+        LinkedList<SiteSettings> pending = new LinkedList<>(sites);
+        Map<String, Integer> inFlightPerHost = new HashMap<>();
+        BlockingQueue<Check> completed = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        try {
+            while (!pending.isEmpty() || inFlight > 0) {
+                Iterator<SiteSettings> iterator = pending.iterator();
+                while (inFlight < limit && iterator.hasNext()) {
+                    SiteSettings siteSettings = iterator.next();
+                    String serverName = NetworkUtil.serverNameOf(siteSettings.getHost());
+                    Integer hostCount = inFlightPerHost.get(serverName);
+                    if (hostCount != null && hostCount >= maxPerHost) {
+                        continue;
+                    }
+                    iterator.remove();
+                    inFlightPerHost.put(serverName, hostCount == null ? 1 : hostCount + 1);
+                    inFlight++;
+                    Integer timeout = timeouts.get(siteSettings);
+                    if (timeout == null) {
+                        timeout = AdaptiveTimeout.MAX_TIMEOUT;
+                    }
+                    if (nioProbeEngine != null) {
+                        listener.onCheckStart(siteSettings);
+                        nioProbeEngine.probe(context, siteSettings, timeout, new CheckCallback(siteSettings, serverName, completed));
+                    } else {
+                        executor.execute(new CheckRunnable(context, siteSettings, timeout, serverName, listener, completed));
+                    }
+                }
+                Check check = completed.take();
+                inFlight--;
+                inFlightPerHost.put(check.serverName, inFlightPerHost.get(check.serverName) - 1);
+                RecentCalls.instance().add(check.siteSettings, check.siteCall);
+                listener.onCheckEnd(check.siteSettings, check.siteCall);
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, "check interrupted, " + (pending.size() + inFlight) + " sites not checked");
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (nioProbeEngine != null) {
+                nioProbeEngine.close();
+            }
+        }
+    }
+
+    /**
+     * @return distinct server names of hosts and internal urls of sites
+     */
+    private static Set<String> serverNamesOf(Collection<SiteSettings> sites) {
+        Set<String> serverNames = new HashSet<>();
+        for (SiteSettings siteSettings : sites) {
+            serverNames.add(NetworkUtil.serverNameOf(siteSettings.getHost()));
+            if (siteSettings.getInternalUrl() != null) {
+                serverNames.add(NetworkUtil.serverNameOf(siteSettings.getInternalUrl()));
+            }
+        }
+        return serverNames;
+    }
+
+    /**
+     * Check engine events.
+     */
+    public interface Listener {
+        /**
+         * Called just before site is called, from a worker thread or from calling thread when multiplexed.
+         */
+        void onCheckStart(SiteSettings siteSettings);
+
+        /**
+         * Called from thread that runs {@link #check(Context, Collection, Listener)}, in completion order.
+         */
+        void onCheckEnd(SiteSettings siteSettings, SiteCall siteCall);
+    }
+
+    private static class Check {
+        final SiteSettings siteSettings;
+        final String serverName;
+        final SiteCall siteCall;
+
+        Check(SiteSettings siteSettings, String serverName, SiteCall siteCall) {
+            this.siteSettings = siteSettings;
+            this.serverName = serverName;
+            this.siteCall = siteCall;
+        }
+    }
+
+    private static class CheckThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+        }
+    }
+
+    private static class CheckCallback implements NioProbeEngine.Callback {
+        private final SiteSettings siteSettings;
+        private final String serverName;
+        private final BlockingQueue<Check> completed;
+
+        CheckCallback(SiteSettings siteSettings, String serverName, BlockingQueue<Check> completed) {
+            this.siteSettings = siteSettings;
+            this.serverName = serverName;
+            this.completed = completed;
+        }
+
+        @Override
+        public void onProbeEnd(SiteCall siteCall) {
+            completed.add(new Check(siteSettings, serverName, siteCall));
+        }
+    }
+
+    private class CheckRunnable implements Runnable {
+        private final Context context;
+        private final SiteSettings siteSettings;
+        private final int timeout;
+        private final String serverName;
+        private final Listener listener;
+        private final BlockingQueue<Check> completed;
+
+        CheckRunnable(Context context, SiteSettings siteSettings, int timeout, String serverName, Listener listener, BlockingQueue<Check> completed) {
+            this.context = context;
+            this.siteSettings = siteSettings;
+            this.timeout = timeout;
+            this.serverName = serverName;
+            this.listener = listener;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            if (BuildConfig.DEBUG) {
+                Log.v(TAG, "call: " + siteSettings);
+            }
+            SiteCall siteCall;
+            try {
+                listener.onCheckStart(siteSettings);
+                siteCall = networkUtil.buildHeadHttpConnectionThenDoCall(context, siteSettings, timeout);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "call: " + siteSettings, e);
+                siteCall = new SiteCall(new Date(), NetworkCallResult.FAIL, 0L, e);
+            }
+            completed.add(new Check(siteSettings, serverName, siteCall));
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.site_monitor.util;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Martin Norbert on 10/09/2015.
@@ -23,6 +24,8 @@ import java.util.Date;
 public class Timer {
 
     private final Date referenceDate;
+    // monotonic, elapsed time is not affected by wall clock changes
+    private final long referenceNanos;
 
     public Timer() {
         this(new Date());
@@ -30,10 +33,11 @@ public class Timer {
 
     public Timer(Date referenceDate) {
         this.referenceDate = referenceDate;
+        this.referenceNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - referenceDate.getTime());
     }
 
     public long getElapsedTime() {
-        return new Date().getTime() - referenceDate.getTime();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - referenceNanos);
     }
 
     public Date getReferenceDate() {
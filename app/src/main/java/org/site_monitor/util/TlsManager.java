@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.site_monitor.util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * TLS contexts shared by all checks, one per trust mode (default trust or trust all for sites with forced certificate).<br/>
+ * Sharing them keeps a bounded client session cache, so repeat checks of a site resume their TLS session with an abbreviated handshake.
+ */
+public class TlsManager {
+
+    public static final int SESSION_CACHE_SIZE = 256;
+    public static final int SESSION_TIMEOUT_SEC = (int) TimeUnit.HOURS.toSeconds(6);
+
+    private static SSLContext defaultSslContext;
+    private static SSLContext trustAllSslContext;
+
+    private TlsManager() {
+    }
+
+    /**
+     * @param forceTrust true to trust all certificates
+     * @return shared TLS context of trust mode, built on first use
+     * @throws SSLException if context can't be initialized
+     */
+    public static synchronized SSLContext sslContext(boolean forceTrust) throws SSLException {
+        if (forceTrust) {
+            if (trustAllSslContext == null) {
+                SSLContext sslContext = CertificateTrustAllManager.sslContext();
+                if (sslContext == null) {
+                    throw new SSLException("trust all context unavailable");
+                }
+                trustAllSslContext = withSessionCache(sslContext);
+            }
+            return trustAllSslContext;
+        }
+        if (defaultSslContext == null) {
+            try {
+                SSLContext sslContext = SSLContext.getInstance(CertificateTrustAllManager.TLS);
+                // default key and trust managers of platform
+                sslContext.init(null, null, null);
+                defaultSslContext = withSessionCache(sslContext);
+            } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                throw new SSLException(e);
+            }
+        }
+        return defaultSslContext;
+    }
+
+    /**
+     * @param forceTrust true to trust all certificates
+     * @return socket factory of shared TLS context of trust mode
+     * @throws SSLException if context can't be initialized
+     */
+    public static SSLSocketFactory sslSocketFactory(boolean forceTrust) throws SSLException {
+        return sslContext(forceTrust).getSocketFactory();
+    }
+
+    private static SSLContext withSessionCache(SSLContext sslContext) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessionContext.setSessionTimeout(SESSION_TIMEOUT_SEC);
+        }
+        return sslContext;
+    }
+
+    /**
+     * Socket factory that measures handshake of sockets it creates, from creation (right after TCP connect) to handshake completion.<br/>
+     * One instance per call, to use where handshake is driven by someone else (HttpURLConnection).
+     * A connection made to an address gets host name as TLS server name, its handshake is then done at socket creation.
+     */
+    static class HandshakeTimingSocketFactory extends SSLSocketFactory implements HandshakeCompletedListener {
+        private final SSLSocketFactory delegate;
+        private final String addressName;
+        private final String serverName;
+        private volatile long createdAt;
+        private volatile long handshakeNanos = -1;
+
+        /**
+         * @param addressName literal address connection is made to
+         * @param serverName  host name of address
+         */
+        HandshakeTimingSocketFactory(SSLSocketFactory delegate, String addressName, String serverName) {
+            this.delegate = delegate;
+            this.addressName = addressName;
+            this.serverName = serverName;
+        }
+
+        /**
+         * @return duration in nanos of last completed handshake, -1 if none completed
+         */
+        long getHandshakeNanos() {
+            return handshakeNanos;
+        }
+
+        @Override
+        public void handshakeCompleted(HandshakeCompletedEvent event) {
+            handshakeNanos = CallPhases.now() - createdAt;
+        }
+
+        private Socket timed(Socket socket) {
+            createdAt = CallPhases.now();
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(this);
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            if (addressName.equals(host)) {
+                // platform client would then send address as server name: handshake is done here with host name, its own one then does nothing
+                SSLSocket sslSocket = (SSLSocket) timed(delegate.createSocket(socket, serverName, port, autoClose));
+                sslSocket.startHandshake();
+                return sslSocket;
+            }
+            return timed(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return timed(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return timed(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return timed(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return timed(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return timed(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
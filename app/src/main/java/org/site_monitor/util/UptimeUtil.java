@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 Martin Norbert
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.site_monitor.util;
+
+import android.content.Context;
+
+import org.site_monitor.R;
+import org.site_monitor.model.bo.Uptime;
+import org.site_monitor.model.db.DBCallRollup;
+
+import java.util.Map;
+
+/**
+ * Rolling uptime of sites over {@link DBCallRollup#PERIODS}, from their rollups.
+ */
+public class UptimeUtil {
+
+    /**
+     * Names of {@link DBCallRollup#PERIODS}.
+     */
+    public static final int[] PERIOD_NAMES = {R.string.window_24h, R.string.window_7d, R.string.window_30d};
+    private static final String SEPARATOR = " · ";
+
+    private UptimeUtil() {
+    }
+
+    /**
+     * @param uptimes uptime of each period, by site id, from {@link DBCallRollup#findUptimes(long, long)}
+     * @param siteId  site
+     * @return percent of successful calls of site in each period, null for periods without calls
+     */
+    public static Double[] percentsOf(Map<Long, Uptime>[] uptimes, Long siteId) {
+        Double[] percents = new Double[uptimes.length];
+        for (int i = 0; i < uptimes.length; i++) {
+            Uptime uptime = uptimes[i].get(siteId);
+            percents[i] = uptime == null ? null : uptime.getPercent();
+        }
+        return percents;
+    }
+
+    /**
+     * @param percents percent of successful calls in each period, null for periods without calls
+     * @return percent of each period having calls, empty if none
+     */
+    public static String format(Context context, Double[] percents) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < percents.length; i++) {
+            if (percents[i] == null) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(context.getString(R.string.uptime_period, context.getString(PERIOD_NAMES[i]), percents[i]));
+        }
+        return builder.toString();
+    }
+}
@@ -21,12 +21,13 @@ import android.util.Log;
 import android.widget.RemoteViews;
 
 import org.site_monitor.R;
-import org.site_monitor.model.adapter.SiteSettingsBusiness;
 import org.site_monitor.model.bo.NetworkCallResult;
-import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
+import org.site_monitor.model.bo.Uptime;
+import org.site_monitor.model.db.DBCallRollup;
 import org.site_monitor.model.db.DBHelper;
 import org.site_monitor.model.db.DBSiteSettings;
+import org.site_monitor.util.UptimeUtil;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -36,6 +37,7 @@ import java.util.List;
  */
 public class LineWidget extends SiteMonitorWidget {
     private static final String COMA = ", ";
+    private static final String SEPARATOR = " · ";
     private static final String TAG = LineWidget.class.getSimpleName();
 
     @Override
@@ -53,8 +55,7 @@ public class LineWidget extends SiteMonitorWidget {
                 views.setInt(R.id.widgetBackgroundImage, BG_COLOR, R.color.state_unknown);
             } else {
                 for (SiteSettings siteSettings : siteSettingsList) {
-                    SiteCall siteCall = new SiteSettingsBusiness(siteSettings).getLastCall();
-                    if (siteCall != null && siteCall.getResult() == NetworkCallResult.FAIL) {
+                    if (siteSettings.getLastResult() == NetworkCallResult.FAIL) {
                         if (sb.length() > 0) {
                             sb.append(COMA);
                         }
@@ -62,19 +63,32 @@ public class LineWidget extends SiteMonitorWidget {
                     }
                 }
                 if (sb.length() == 0) {
-                    views.setTextViewText(R.id.widgetTextView, context.getText(R.string.widget_all_ok));
+                    sb.append(context.getText(R.string.widget_all_ok));
                     views.setInt(R.id.widgetBackgroundImage, BG_COLOR, R.color.state_success);
                 } else {
-                    views.setTextViewText(R.id.widgetTextView, sb.toString());
                     views.setInt(R.id.widgetBackgroundImage, BG_COLOR, R.color.state_fail);
                 }
+                String uptimeText = uptimeOfAll(dbHelper.getDBCallRollup(), context);
+                if (!uptimeText.isEmpty()) {
+                    sb.append(SEPARATOR).append(uptimeText);
+                }
+                views.setTextViewText(R.id.widgetTextView, sb.toString());
             }
             appWidgetManager.updateAppWidget(appWidgetId, views);
         } catch (SQLException e) {
             Log.e(TAG, "updateAppWidget", e);
-        } finally {
-            dbHelper.release();
         }
     }
-}
 
+    /**
+     * @return uptime of all sites over first of {@link DBCallRollup#PERIODS}, empty if no call
+     */
+    private static String uptimeOfAll(DBCallRollup dbCallRollup, Context context) throws SQLException {
+        long now = System.currentTimeMillis();
+        Uptime uptime = new Uptime();
+        for (Uptime siteUptime : dbCallRollup.findUptimes(now - DBCallRollup.PERIODS[0], now).values()) {
+            uptime.add(siteUptime);
+        }
+        return UptimeUtil.format(context, new Double[]{uptime.getPercent()});
+    }
+}
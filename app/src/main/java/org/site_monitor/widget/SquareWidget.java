@@ -21,9 +21,7 @@ import android.util.Log;
 import android.widget.RemoteViews;
 
 import org.site_monitor.R;
-import org.site_monitor.model.adapter.SiteSettingsBusiness;
 import org.site_monitor.model.bo.NetworkCallResult;
-import org.site_monitor.model.bo.SiteCall;
 import org.site_monitor.model.bo.SiteSettings;
 import org.site_monitor.model.db.DBHelper;
 import org.site_monitor.model.db.DBSiteSettings;
@@ -53,8 +51,7 @@ public class SquareWidget extends SiteMonitorWidget {
                 views.setInt(R.id.widgetBackgroundImage, BG_COLOR, R.color.state_unknown);
             } else {
                 for (SiteSettings siteSettings : siteSettingsList) {
-                    SiteCall siteCall = new SiteSettingsBusiness(siteSettings).getLastCall();
-                    if (siteCall != null && siteCall.getResult() == NetworkCallResult.FAIL) {
+                    if (siteSettings.getLastResult() == NetworkCallResult.FAIL) {
                         hasFail = true;
                         break;
                     }
@@ -68,8 +65,6 @@ public class SquareWidget extends SiteMonitorWidget {
             appWidgetManager.updateAppWidget(appWidgetId, views);
         } catch (SQLException e) {
             Log.e(TAG, "updateAppWidget", e);
-        } finally {
-            dbHelper.release();
         }
     }
 }